@@ -1,5 +1,9 @@
 package client;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import domain.facade.LEITunes;
 import ui.UI;
 
@@ -9,13 +13,34 @@ import ui.UI;
  */
 public class GUIClient {
 	
+	/**
+	 * The file where the library is saved between runs
+	 */
+	private static final Path CATALOG = Paths.get("leitunes.catalog");
+	
+	/**
+	 * The file where the changes to the library are kept between saves of the catalog
+	 */
+	private static final Path JOURNAL = Paths.get("leitunes.journal");
+	
 	/**
 	 * The method for the start up of the system 
 	 */
 	public static void main (String [] args) {
 		LEITunes leiTunes = new LEITunes ();
+		try {
+			leiTunes.openJournal(CATALOG, JOURNAL);
+		} catch (IOException e) {
+			System.out.println("Could not load the library: " + e.getMessage());
+		}
 		UI ui = new UI (leiTunes.getPlaylistController(), 
 						leiTunes.getMusicLibraryController());
 		ui.run ();
+		try {
+			leiTunes.closeJournal();
+		} catch (IOException e) {
+			System.out.println("Could not save the catalog: " + e.getMessage());
+		}
+		System.exit(0);
 	}
 }
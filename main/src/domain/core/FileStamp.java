@@ -0,0 +1,30 @@
+package domain.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * FileStamp objects are records with the size and the last modification time of the
+ * file of a song, taken when the song is read. A file whose stamp did not change is
+ * assumed to have the same tags, so it does not need to be read again.
+ *
+ */
+public record FileStamp(long size, long lastModified) {
+
+	/**
+	 * Returns the current stamp of the given file
+	 * 
+	 * @param file the file
+	 * @return the size and the last modification time (in milliseconds) of the file
+	 * @throws IOException if the attributes of the file could not be read
+	 */
+	public static FileStamp of(Path file) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+	}
+
+}
@@ -0,0 +1,76 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+import domain.facade.ISong;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A MatchTask finds the songs in a range of positions that match a compiled regex.
+ * Ranges larger than the chunk size are split in two halves that are searched in
+ * parallel, and the results are joined keeping the order of the positions.
+ *
+ */
+final class MatchTask extends RecursiveTask<List<ISong>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient IntFunction<Song> songs;
+	private final transient Pattern pattern;
+	private final int from;
+	private final int to;
+	private final int chunkSize;
+
+	/**
+	 * Creates a task that searches the positions from (inclusive) to (exclusive)
+	 *
+	 * @param songs gives the song at each position
+	 * @param pattern the compiled regex
+	 * @param from the first position to search
+	 * @param to the position after the last one to search
+	 * @param chunkSize the largest range that is searched without splitting
+	 * @requires from <= to && chunkSize > 0
+	 */
+	MatchTask(IntFunction<Song> songs, Pattern pattern, int from, int to, int chunkSize) {
+		this.songs = songs;
+		this.pattern = pattern;
+		this.from = from;
+		this.to = to;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Searches the range, splitting it if it is larger than the chunk size
+	 *
+	 * @return the songs in the range that match the regex, in order
+	 */
+	@Override
+	protected List<ISong> compute() {
+		List<ISong> matchedSongs;
+
+		if(to - from <= chunkSize) {
+			matchedSongs = new ArrayList<>();
+			for(int i = from; i < to; i++) {
+				Song song = songs.apply(i);
+				if(song.matches(pattern))
+					matchedSongs.add(song);
+			}
+		} else {
+			int middle = (from + to) >>> 1;
+			MatchTask left = new MatchTask(songs, pattern, from, middle, chunkSize);
+			MatchTask right = new MatchTask(songs, pattern, middle, to, chunkSize);
+			left.fork();
+			List<ISong> rightMatches = right.compute();
+			matchedSongs = left.join();
+			matchedSongs.addAll(rightMatches);
+		}
+
+		return matchedSongs;
+	}
+
+}
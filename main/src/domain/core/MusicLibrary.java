@@ -2,16 +2,34 @@ package domain.core;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import domain.facade.ISong;
 import domain.player.Player;
 import domain.player.PlayerFactory;
 import util.adts.ArrayQListWithSelection;
+import util.adts.PatternCache;
 import util.adts.QListWithSelection;
-import util.observer.AbsSubject;
+import util.observer.AsyncSubject;
 import util.observer.Subject;
 
 /**
@@ -20,28 +38,73 @@ import util.observer.Subject;
  * This class consist in representing music libraries where it can be selected
  * one song at a time, or none.
  * 
- * The library notifies its observers each time a song is added, removed or rated.
+ * The library notifies its observers each time a song is added, removed, moved, rated,
+ * updated or played until the end. Observers may listen to every event, to the events of some
+ * types or to the events of some type about a given song. The events may be delivered
+ * asynchronously (see AsyncSubject); the search index of the library is always updated
+ * before the mutating method returns, so searches never need to wait for the listeners.
  * At the same time, the library also is notified when the player changes states
  * 
+ * The library may be changed and read by different threads (e.g. the player counts the
+ * times a song is played while the user adds songs). Changes take a write lock; simple
+ * reads are optimistic and only take the read lock if a change happened meanwhile.
+ * Searches and iterations go through an immutable snapshot of the songs, copied after
+ * the first read that follows a change. Events are emitted outside the lock.
+ * 
  */
-public class MusicLibrary extends AbsSubject<SongLibraryEvent>
+public class MusicLibrary extends AsyncSubject<SongLibraryEvent, Song>
 						  implements QListWithSelection<Song>, Subject<SongLibraryEvent>, PropertyChangeListener {	
 	
+	private static final int PATTERN_CACHE_SIZE = 64;
+	private static final int PARALLEL_THRESHOLD = 16384;
+	private static final int TASKS_PER_THREAD = 4;
+	private static final int EVENT_QUEUE_CAPACITY = 1024;
+	private static final long RANK_GAP = 1L << 20;
+	
 	private QListWithSelection<Song> library;
-	private Song playing;
+	private PatternCache patterns;
+	private Map<Integer, Song> songsById;
+	private Map<String, Song> songsByFilename;
+	private int nextId;
+	private long nextRank;
+	private SongIndex index;
+	private StampedLock songsLock;
+	private volatile List<Song> snapshot;
+	private volatile Song playing;
 	private Player player;
 	
 	/**
 	 * Creates a new MusicLibrary object
 	 */
 	public MusicLibrary() {
-		super();
+		super(SongLibraryEvent::getModifiedSong, EVENT_QUEUE_CAPACITY);
 		library = new ArrayQListWithSelection<>();
+		patterns = new PatternCache(PATTERN_CACHE_SIZE);
+		songsById = new ConcurrentHashMap<>();
+		songsByFilename = new ConcurrentHashMap<>();
+		nextId = 0;
+		nextRank = RANK_GAP;
+		index = new SongIndex(songsById::get);
+		songsLock = new StampedLock();
+		snapshot = null;
 		playing = null;
 		player = PlayerFactory.INSTANCE.getPlayer();
 		player.addListener(this);
 	}
 	
+	/**
+	 * Emits a given event, updating the search index first, on the calling thread,
+	 * so the index is consistent with the library even if the listeners are not
+	 * notified yet
+	 * 
+	 * @param e event that occurred
+	 */
+	@Override
+	public void emitEvent(SongLibraryEvent e) {
+		index.processEvent(e);
+		super.emitEvent(e);
+	}
+	
 	/**
 	 * Plays the selected song
 	 * 
@@ -49,9 +112,10 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 * @ensures isPlaying()
 	 */
 	public void play() {
+		Song selected = getSelected();
 		if(isPlaying())
 			stop();
-		playing = library.getSelected();
+		playing = selected;
 		player.load(playing.getFilename());
 		player.play();
 	}
@@ -84,8 +148,9 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 * @ensures \old(rate) == MAX_RATE ==> rate == \old(rate)
 	 */	
 	public void incRateSelected() {
-		getSelected().incRating();
-		emitEvent(new SongRatedLibraryEvent(getSelected()));
+		Song selected = getSelected();
+		selected.incRating();
+		emitEvent(new SongRatedLibraryEvent(selected));
 	}
 	
 	/**
@@ -97,40 +162,241 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 * @ensures \old(rate) == MIN_RATE ==> rate == \old(rate)
 	 */
 	public void decRateSelected() {
-		getSelected().decRating();
-		emitEvent(new SongRatedLibraryEvent(getSelected()));
+		Song selected = getSelected();
+		selected.decRating();
+		emitEvent(new SongRatedLibraryEvent(selected));
 	}
 	
 	/**
-	 * Returns an iterable structure with all songs from the library that match the given regex
+	 * Increments the amount of times the given song was played. If the song is in
+	 * the library, emits an event of type SongPlayedLibraryEvent
+	 * 
+	 * @param song the song that was played until the end
+	 * @ensures song.getTimesPlayed() == \old(song.getTimesPlayed()) + 1
+	 */
+	public void incTimesPlayed(ISong song) {
+		song.incTimesPlayed();
+		Song inLibrary = songsById.get(song.getId());
+		if (inLibrary == song)
+			emitEvent(new SongPlayedLibraryEvent(inLibrary));
+	}
+	
+	/**
+	 * Returns an iterable structure with all songs from the library that match the given regex.
+	 * The regex is compiled once per query (and cached for the following queries) and, when
+	 * possible, it is only run against the songs that the index did not rule out.
 	 * 
 	 * @requires size() > 0
 	 * @param reexp a given regular expression (regex)
 	 * @return a list with all songs from the library that match the given regex
 	 */
 	public Iterable<ISong> getMatches(String reexp) {
-		List<ISong> matchedSongs = new ArrayList<>();
+		return getMatches(reexp, 1);
+	}
+	
+	/**
+	 * Returns an iterable structure with all songs from the library that match the given regex.
+	 * If there are enough songs to search, they are split in chunks that are searched in parallel
+	 * by the common fork/join pool. The number of chunks is given by the parallelism, which is
+	 * bounded by the parallelism of the common pool, so callers cannot make threads or pools
+	 * grow. The songs are given in the same order as in the library.
+	 * 
+	 * @requires size() > 0 && parallelism > 0
+	 * @param reexp a given regular expression (regex)
+	 * @param parallelism the number of threads used to search
+	 * @return a list with all songs from the library that match the given regex
+	 */
+	public Iterable<ISong> getMatches(String reexp, int parallelism) {
+		Pattern pattern = patterns.get(reexp);
+		List<Song> searched = index.candidates(reexp).orElseGet(this::snapshot);
+		IntFunction<Song> songs = searched::get;
+		int total = searched.size();
 		
-		for (ISong song : library)
-			if (song.matches(reexp))
-				matchedSongs.add(song);
+		int threads = Math.min(parallelism, ForkJoinPool.getCommonPoolParallelism());
+		int chunkSize = total;
+		if (threads > 1 && total >= PARALLEL_THRESHOLD)
+			chunkSize = Math.max(1, total / (threads * TASKS_PER_THREAD));
 		
-		return matchedSongs;
+		MatchTask task = new MatchTask(songs, pattern, 0, total, chunkSize);
+		return chunkSize < total ? ForkJoinPool.commonPool().invoke(task) : task.compute();
 	}
 	
 	/**
-	 * Returns an iterable structure with all songs from the library
+	 * Returns the songs from the library that have the given word in their title, album,
+	 * genre or artists (ignoring case)
+	 * 
+	 * @param term a given word
+	 * @return the songs from the library that contain the given word
+	 */
+	public Iterable<ISong> getTermMatches(String term) {
+		return Collections.unmodifiableList(index.term(term));
+	}
+	
+	/**
+	 * Returns the songs from the library that have a word starting with the given prefix
+	 * in their title, album, genre or artists (ignoring case)
+	 * 
+	 * @param prefix a given prefix
+	 * @return the songs from the library that contain a word starting with the given prefix
+	 */
+	public Iterable<ISong> getPrefixMatches(String prefix) {
+		return Collections.unmodifiableList(index.prefix(prefix));
+	}
+	
+	/**
+	 * Returns the songs from the library that contain all of the given words
+	 * 
+	 * @param terms the given words
+	 * @return the songs from the library that contain every given word
+	 */
+	public Iterable<ISong> getAllTermsMatches(String... terms) {
+		return Collections.unmodifiableList(index.allTerms(terms));
+	}
+	
+	/**
+	 * Returns the songs from the library that contain at least one of the given words
+	 * 
+	 * @param terms the given words
+	 * @return the songs from the library that contain some of the given words
+	 */
+	public Iterable<ISong> getAnyTermMatches(String... terms) {
+		return Collections.unmodifiableList(index.anyTerm(terms));
+	}
+	
+	/**
+	 * Returns a page of the songs from the library that match the given regex, skipping
+	 * the first offset matches. Only the songs needed to fill the page are checked.
+	 * 
+	 * @param reexp a given regular expression (regex)
+	 * @param offset the number of matches to skip
+	 * @param limit the maximum number of songs in the page
+	 * @requires offset >= 0 && limit >= 0
+	 * @return a list with at most limit songs that match the given regex
+	 */
+	public List<ISong> getMatches(String reexp, int offset, int limit) {
+		return streamMatches(reexp).skip(offset).limit(limit).collect(Collectors.toList());
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs from the library that match the given regex.
+	 * Songs are only checked as the stream is consumed and no copy of the library is made.
+	 * 
+	 * @param reexp a given regular expression (regex)
+	 * @return a stream with the songs from the library that match the given regex, in order
+	 */
+	public Stream<ISong> streamMatches(String reexp) {
+		Pattern pattern = patterns.get(reexp);
+		Stream<Song> songs = index.candidates(reexp).orElseGet(this::snapshot).stream();
+		
+		return songs.filter(song -> song.matches(pattern)).map(ISong.class::cast);
+	}
+	
+	/**
+	 * Returns a lazy stream of all songs from the library
+	 * 
+	 * @return a stream with all songs from the library, in order
+	 */
+	public Stream<ISong> streamSongs() {
+		return streamLibrary().map(ISong.class::cast);
+	}
+	
+	/**
+	 * Returns an iterable structure with all songs from the library. The structure is a
+	 * view of the library, so no copy of the library is made.
 	 * 
 	 * @requires size() > 0
-	 * @return a list with all songs from the library
+	 * @return a view with all songs from the library
 	 */
 	public Iterable<ISong> getSongs() {
-		List<ISong> allSongs = new ArrayList<>();
-		
-		for (ISong song : library)
-			allSongs.add(song);
-		
-		return allSongs;
+		return () -> streamSongs().iterator();
+	}
+	
+	/**
+	 * Returns a stream over the songs of the library
+	 * 
+	 * @return a stream with all songs from the library, in order
+	 */
+	private Stream<Song> streamLibrary() {
+		return snapshot().stream();
+	}
+	
+	/**
+	 * Returns an immutable copy of the songs of the library, copying them only if the
+	 * library changed since the last copy
+	 * 
+	 * @return the songs of the library, in order
+	 */
+	private List<Song> snapshot() {
+		List<Song> result = snapshot;
+		if (result == null) {
+			long stamp = songsLock.readLock();
+			try {
+				result = snapshot;
+				if (result == null) {
+					List<Song> copy = new ArrayList<>(library.size());
+					for (Song song : library)
+						copy.add(song);
+					result = Collections.unmodifiableList(copy);
+					snapshot = result;
+				}
+			} finally {
+				songsLock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Reads the backing list, optimistically at first and holding the read lock if
+	 * the library changed during the optimistic read
+	 * 
+	 * @param reader the read to make
+	 * @return the result of the read
+	 */
+	private <T> T read(Supplier<T> reader) {
+		long stamp = songsLock.tryOptimisticRead();
+		T result = null;
+		try {
+			result = reader.get();
+		} catch (RuntimeException e) {
+			stamp = 0;
+		}
+		if (!songsLock.validate(stamp)) {
+			stamp = songsLock.readLock();
+			try {
+				result = reader.get();
+			} finally {
+				songsLock.unlockRead(stamp);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Changes the backing list or the lookup tables holding the write lock
+	 * 
+	 * @param writer the change to make
+	 */
+	private void write(Runnable writer) {
+		writeAndGet(() -> {
+			writer.run();
+			return null;
+		});
+	}
+	
+	/**
+	 * Changes the backing list or the lookup tables holding the write lock
+	 * 
+	 * @param writer the change to make
+	 * @return the result of the change
+	 */
+	private <T> T writeAndGet(Supplier<T> writer) {
+		long stamp = songsLock.writeLock();
+		try {
+			return writer.get();
+		} finally {
+			songsLock.unlockWrite(stamp);
+		}
 	}
 	
 	/**
@@ -141,7 +407,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public int size() {
-		return library.size();
+		return read(library::size);
 	}
 
 	/**
@@ -153,17 +419,18 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public Song get(int i) {
-		return library.get(i);
+		return read(() -> library.get(i));
 	}
 
 	/**
-	 * Returns an iterator over the songs in the library
+	 * Returns an iterator over the songs in the library. The iterator goes through the
+	 * songs the library had when it was created.
 	 * 
 	 * @return an iterator over the songs in this library in proper sequence
 	 */
 	@Override
 	public Iterator<Song> iterator() {
-		return library.iterator();
+		return snapshot().iterator();
 	}
 
 	/**
@@ -171,9 +438,10 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public void propertyChange(PropertyChangeEvent evt) {
-		if(isPlaying()) {
+		Song current = playing;
+		if(current != null) {
 			if(evt.getNewValue().equals(Player.PlayingState.ENDED)){
-				playing.incTimesPlayed();
+				incTimesPlayed(current);
 			} else if(evt.getNewValue().equals(Player.PlayingState.STOPED))
 				stop();
 		}
@@ -189,22 +457,158 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public void select(int i) {
-		library.select(i);
+		write(() -> library.select(i));
 	}
 
 	/**
-	 * Adds a song to the end of the library
+	 * Moves the song at position from to position to in the library, shifting the
+	 * songs in between. The selected song stays selected.
+	 * Emits an event of type SongMovedLibraryEvent
+	 * 
+	 * @param from the position of the song to move
+	 * @param to the new position of the song
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	@Override
+	public void move(int from, int to) {
+		Song moved = writeAndGet(() -> {
+			library.move(from, to);
+			snapshot = null;
+			rerank(to);
+			return library.get(to);
+		});
+		emitEvent(new SongMovedLibraryEvent(moved));
+	}
+	
+	/**
+	 * Gives the song at the given position a rank between the ranks of its neighbours,
+	 * or the next rank if it is the last song, ranking every song again, in order, if
+	 * there is no rank left between its neighbours
+	 * 
+	 * @param i the position of the song
+	 * @requires the write lock is held && 0 <= i < size()
+	 */
+	private void rerank(int i) {
+		long before = i > 0 ? library.get(i - 1).getRank() : 0;
+		long after = i < library.size() - 1 ? library.get(i + 1).getRank() : nextRank;
+		
+		if (after == nextRank) {
+			library.get(i).setRank(nextRank);
+			nextRank += RANK_GAP;
+		} else if (after - before > 1)
+			library.get(i).setRank(before + (after - before) / 2);
+		else {
+			nextRank = RANK_GAP;
+			for (Song song : library) {
+				song.setRank(nextRank);
+				nextRank += RANK_GAP;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the order of the songs in the library. Songs that are not in the library
+	 * are compared by the place they had when they were removed.
+	 * 
+	 * @return the comparator of the songs by their position in the library
+	 * @requires the compared songs were added to this library
+	 */
+	public Comparator<ISong> libraryOrder() {
+		return Comparator.comparingLong(song -> ((Song) song).getRank());
+	}
+
+	/**
+	 * Adds a song to the end of the library, giving it a new id
 	 * Emits an event of type SongAddedLibraryEvent
 	 * 
 	 * @param e the song to be added
-	 * @requires song != null
+	 * @requires song != null && !contains(song.getFilename())
 	 * @ensures size() == \old(size()) + 1
 	 */
 	@Override
 	public void add(Song e) {
-		library.add(e);
+		write(() -> insert(e));
 		emitEvent(new SongAddedLibraryEvent(e));
 	}
+	
+	/**
+	 * Adds the given songs to the end of the library, in order, giving each one a new id
+	 * Emits a single event of type SongBatchAddedLibraryEvent
+	 * 
+	 * @param songs the songs to be added
+	 * @requires no song in songs is in the library
+	 * @ensures size() == \old(size()) + songs.size()
+	 */
+	public void addAll(List<Song> songs) {
+		if (!songs.isEmpty()) {
+			write(() -> songs.forEach(this::insert));
+			emitEvent(new SongBatchAddedLibraryEvent(new ArrayList<>(songs)));
+		}
+	}
+	
+	/**
+	 * Adds a song to the end of the backing list and to the lookup tables, giving it a new id
+	 * 
+	 * @param e the song to be added
+	 * @requires the write lock is held
+	 */
+	private void insert(Song e) {
+		e.setId(nextId++);
+		e.setRank(nextRank);
+		nextRank += RANK_GAP;
+		library.add(e);
+		snapshot = null;
+		songsById.put(e.getId(), e);
+		songsByFilename.put(filenameKey(e.getFilename()), e);
+	}
+	
+	/**
+	 * Returns the song in the library with the given id, if any
+	 * 
+	 * @param id the id of the song
+	 * @return the song with the given id, if it is in the library
+	 */
+	public Optional<Song> getSongById(int id) {
+		return Optional.ofNullable(songsById.get(id));
+	}
+	
+	/**
+	 * Returns the song in the library stored in the given file, if any
+	 * 
+	 * @param filename the filename of the song, relative or absolute
+	 * @return the song stored in the given file, if it is in the library
+	 */
+	public Optional<Song> getSongByFilename(String filename) {
+		return Optional.ofNullable(songsByFilename.get(filenameKey(filename)));
+	}
+	
+	/**
+	 * Checks if the song stored in the given file is in the library
+	 * 
+	 * @param filename the filename of the song, relative or absolute
+	 * @return true if there is a song in the library stored in the given file, false otherwise
+	 */
+	public boolean contains(String filename) {
+		return songsByFilename.containsKey(filenameKey(filename));
+	}
+	
+	/**
+	 * Returns the key of the given filename in the table of filenames: the absolute and
+	 * normalized path of the file, so the same file is found whether it is named by a
+	 * relative or by an absolute path. A filename that is not a valid path is its own key.
+	 * 
+	 * @param filename the filename of a song
+	 * @return the key of the filename
+	 */
+	public static String filenameKey(String filename) {
+		String key = filename;
+		try {
+			key = Paths.get(filename).toAbsolutePath().normalize().toString();
+		} catch (InvalidPathException e) {
+			// the filename is not a path of this file system, so it is kept as it is
+		}
+		return key;
+	}
 
 	/**
 	 * Returns true if a song is selected
@@ -213,7 +617,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public boolean someSelected() {
-		return library.someSelected();
+		return read(library::someSelected);
 	}
 
 	/**
@@ -225,7 +629,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public int getIndexSelected() {
-		return library.getIndexSelected();
+		return read(library::getIndexSelected);
 	}
 
 	/**
@@ -239,10 +643,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public void next() {
-		if (getIndexSelected() < size() - 1)
-			library.next();
-		else
-			library.select(-1);
+		write(() -> {
+			if (library.getIndexSelected() < library.size() - 1)
+				library.next();
+			else
+				library.select(-1);
+		});
 	}
 
 	/**
@@ -256,10 +662,12 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public void previous() {
-		if (getIndexSelected() > 0)
-			library.previous();
-		else
-			library.select(-1);
+		write(() -> {
+			if (library.getIndexSelected() > 0)
+				library.previous();
+			else
+				library.select(-1);
+		});
 	}
 
 	/**
@@ -271,11 +679,147 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public void remove() {
-		if (someSelected()) {
-			Song selected = getSelected();
+		Optional<Song> removed = writeAndGet(this::removeSelected);
+		if (removed.isPresent())
+			emitEvent(new SongRemovedLibraryEvent(removed.get()));
+	}
+	
+	/**
+	 * Removes the selected song from the backing list and from the lookup tables, if possible
+	 * 
+	 * @return the removed song, if some song was selected
+	 * @requires the write lock is held
+	 */
+	private Optional<Song> removeSelected() {
+		Optional<Song> removed = Optional.empty();
+		if (library.someSelected()) {
+			Song selected = library.getSelected();
 			library.remove();
-			emitEvent(new SongRemovedLibraryEvent(selected));
+			songsById.remove(selected.getId());
+			songsByFilename.remove(filenameKey(selected.getFilename()));
+			snapshot = null;
+			removed = Optional.of(selected);
+		}
+		return removed;
+	}
+
+	/**
+	 * Removes the given song from the library, if it is there, keeping the selection
+	 * of the other songs. Emits an event of type SongRemovedLibraryEvent
+	 * 
+	 * @param song the song to be removed
+	 * @ensures !contains(song.getFilename())
+	 */
+	public void remove(Song song) {
+		Optional<Song> removed = writeAndGet(() -> {
+			Optional<Song> result = Optional.empty();
+			if (songsById.get(song.getId()) == song) {
+				int position = positionOf(song);
+				int selected = library.someSelected() ? library.getIndexSelected() : -1;
+				library.select(position);
+				result = removeSelected();
+				if (selected > position)
+					library.select(selected - 1);
+				else
+					library.select(selected == position ? -1 : selected);
+			}
+			return result;
+		});
+		if (removed.isPresent())
+			emitEvent(new SongRemovedLibraryEvent(removed.get()));
+	}
+	
+	/**
+	 * Returns the position of a song of the library. The ranks of the songs grow with
+	 * their positions, so the position is found by a binary search of the rank.
+	 * 
+	 * @param song the song
+	 * @return the position of the song in the library
+	 * @requires the write lock is held && song is in the library
+	 */
+	private int positionOf(Song song) {
+		long rank = song.getRank();
+		int low = 0;
+		int high = library.size() - 1;
+		int position = -1;
+		while (position < 0) {
+			int middle = (low + high) >>> 1;
+			long middleRank = library.get(middle).getRank();
+			if (middleRank < rank)
+				low = middle + 1;
+			else if (middleRank > rank)
+				high = middle - 1;
+			else
+				position = middle;
+		}
+		return position;
+	}
+	
+	/**
+	 * Removes the given songs from the library, those that are in it, in a single pass
+	 * over the library and keeping the selection of the other songs. Emits an event of
+	 * type SongRemovedLibraryEvent for each song removed, in the order of the library.
+	 * 
+	 * @param songs the songs to be removed
+	 * @ensures no song in songs is in the library
+	 */
+	public void removeAll(Collection<Song> songs) {
+		List<Song> removed = writeAndGet(() -> removeSongs(songs));
+		for (Song song : removed)
+			emitEvent(new SongRemovedLibraryEvent(song));
+	}
+	
+	/**
+	 * Removes the given songs from the backing list and from the lookup tables, building
+	 * a new backing list with the songs that are kept
+	 * 
+	 * @param songs the songs to be removed
+	 * @return the songs removed, in the order they had in the library
+	 * @requires the write lock is held
+	 */
+	private List<Song> removeSongs(Collection<Song> songs) {
+		Set<Song> toRemove = new HashSet<>();
+		for (Song song : songs)
+			if (songsById.get(song.getId()) == song)
+				toRemove.add(song);
+		
+		List<Song> removed = new ArrayList<>(toRemove.size());
+		if (!toRemove.isEmpty()) {
+			Song selected = library.someSelected() ? library.getSelected() : null;
+			int selectedIndex = -1;
+			QListWithSelection<Song> kept = new ArrayQListWithSelection<>();
+			for (Song song : library) {
+				if (toRemove.contains(song)) {
+					songsById.remove(song.getId());
+					songsByFilename.remove(filenameKey(song.getFilename()));
+					removed.add(song);
+				} else {
+					if (song == selected)
+						selectedIndex = kept.size();
+					kept.add(song);
+				}
+			}
+			kept.select(selectedIndex);
+			library = kept;
+			snapshot = null;
 		}
+		return removed;
+	}
+	
+	/**
+	 * Replaces the meta-info and the file stamp of a song of the library by those of the
+	 * given song, read again from the same file. The rate and the number of times the song
+	 * was played are kept. Emits an event of type SongUpdatedLibraryEvent
+	 * 
+	 * @param song the song of the library to be updated
+	 * @param reread the song read again from the file of song
+	 * @requires contains(song.getFilename()) && reread.getFilename().equals(song.getFilename())
+	 */
+	public void update(Song song, Song reread) {
+		SongMetaInfo previousInfo = song.getMetaInfo();
+		song.setMetaInfo(reread.getMetaInfo());
+		song.setFileStamp(reread.getFileStamp());
+		emitEvent(new SongUpdatedLibraryEvent(song, previousInfo));
 	}
 
 	/**
@@ -287,7 +831,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	@Override
 	public Song getSelected() {
-		return library.getSelected();
+		return read(library::getSelected);
 	}
 	
 	/**
@@ -306,9 +850,11 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 	 */
 	public boolean equalsLibrary(MusicLibrary m) {
 		boolean areEquals = true;
-		if (size() == m.size()) {
-			for (int i = 0; i < size(); i++) {
-				if (!get(i).equalsSong(m.get(i)))
+		List<Song> songs = snapshot();
+		List<Song> others = m.snapshot();
+		if (songs.size() == others.size()) {
+			for (int i = 0; i < songs.size(); i++) {
+				if (!songs.get(i).equalsSong(others.get(i)))
 					areEquals = false;
 			}	
 		}
@@ -328,7 +874,7 @@ public class MusicLibrary extends AbsSubject<SongLibraryEvent>
 		StringBuilder sb = new StringBuilder();
 		int i = 0;
 		
-		for(Song s : library) {
+		for(Song s : snapshot()) {
 			sb.append(i);
 			sb.append(" ");
 			sb.append(s);
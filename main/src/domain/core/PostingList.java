@@ -0,0 +1,125 @@
+package domain.core;
+
+import java.util.Arrays;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A PostingList is a sorted list of distinct song ids, kept in a plain int array.
+ * Since ids are given in increasing order, adding an id is usually an append.
+ *
+ */
+final class PostingList {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private int[] ids;
+	private int size;
+
+	/**
+	 * Creates an empty posting list
+	 */
+	PostingList() {
+		ids = new int[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Creates a posting list with the first n ids of the given array
+	 *
+	 * @param ids the given ids, sorted and distinct
+	 * @param n the number of ids to use
+	 */
+	private PostingList(int[] ids, int n) {
+		this.ids = ids;
+		this.size = n;
+	}
+
+	/**
+	 * Returns the number of ids in the list
+	 *
+	 * @return the number of ids in the list
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the id at position i
+	 *
+	 * @param i the position of the id
+	 * @requires 0 <= i < size()
+	 * @return the id at position i
+	 */
+	int get(int i) {
+		return ids[i];
+	}
+
+	/**
+	 * Adds the given id to the list, if it is not there yet
+	 *
+	 * @param id the id to be added
+	 */
+	void add(int id) {
+		if(size > 0 && ids[size-1] >= id) {
+			int pos = Arrays.binarySearch(ids, 0, size, id);
+			if(pos < 0)
+				insert(-pos - 1, id);
+		} else
+			insert(size, id);
+	}
+
+	/**
+	 * Removes the given id from the list, if it is there
+	 *
+	 * @param id the id to be removed
+	 */
+	void remove(int id) {
+		int pos = Arrays.binarySearch(ids, 0, size, id);
+		if(pos >= 0) {
+			System.arraycopy(ids, pos+1, ids, pos, size-pos-1);
+			size--;
+		}
+	}
+
+	/**
+	 * Returns a new list with the ids present both in this list and in the other
+	 *
+	 * @param other the other list
+	 * @return the intersection of the two lists
+	 */
+	PostingList and(PostingList other) {
+		int[] result = new int[Math.min(size, other.size)];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+
+		while(i < size && j < other.size) {
+			if(ids[i] < other.ids[j])
+				i++;
+			else if(ids[i] > other.ids[j])
+				j++;
+			else {
+				result[n++] = ids[i];
+				i++;
+				j++;
+			}
+		}
+		return new PostingList(result, n);
+	}
+
+	/**
+	 * Inserts the id at the given position, growing the array if needed
+	 *
+	 * @param pos the position
+	 * @param id the id to be inserted
+	 */
+	private void insert(int pos, int id) {
+		if(size == ids.length)
+			ids = Arrays.copyOf(ids, Math.max(INITIAL_CAPACITY, size * 2));
+		System.arraycopy(ids, pos, ids, pos+1, size-pos);
+		ids[pos] = id;
+		size++;
+	}
+
+}
@@ -5,30 +5,68 @@ package domain.core;
  *
  * Rates are immutable objects that represent the ratings of a song,
  * which are given by the user (from 1-5 and 0 if the song hasn't been rated yet)
+ * 
+ * There are only six different rates, so there is a shared instance of each one,
+ * given by Rate.of. The constructors are kept for compatibility only.
  *
  */
 public class Rate implements Comparable<Rate> {
 	
+	static final int NO_RATE = 0;
+	static final int MIN_RATE = 1;
+	static final int MAX_RATE = 5;
+	private static final Rate[] RATES = new Rate[MAX_RATE + 1];
+	
+	static {
+		for (int i = NO_RATE; i <= MAX_RATE; i++)
+			RATES[i] = new Rate(i);
+	}
+	
 	private int rate;
-	private static final int NO_RATE = 0;
-	private static final int MIN_RATE = 1;
-	private static final int MAX_RATE = 5;
 	
 	/**
 	 * Creates a new Rate (default) with no rate associated
+	 * 
+	 * @deprecated use Rate.of(0), which gives the shared instance
 	 */
+	@Deprecated
 	public Rate() {
-		rate = NO_RATE;
+		this(NO_RATE);
 	}
 	
 	/**
-	 * Creates a new Rate with a given value (rate)
+	 * Creates a new Rate with a given value (rate). Values outside the bounds are
+	 * taken to the nearest bound, as in Rate.of.
 	 * 
 	 * @param rate the given value of rate
 	 * @requires MIN_RATE <= rate <= MAX_RATE
+	 * @deprecated use Rate.of(rate), which gives the shared instance
 	 */
+	@Deprecated
 	public Rate (int rate) {
-		this.rate = rate;
+		this.rate = bound(rate);
+	}
+
+	/**
+	 * Returns the shared Rate with the given value. Values outside the bounds are
+	 * taken to the nearest bound.
+	 * 
+	 * @param rate the given value of rate (0 if there is no rate)
+	 * @return the Rate with the given value
+	 * @ensures \result.getRate() == rate, if NO_RATE <= rate <= MAX_RATE
+	 */
+	public static Rate of(int rate) {
+		return RATES[bound(rate)];
+	}
+	
+	/**
+	 * Takes a value of rate to the nearest bound, if it is outside the bounds
+	 * 
+	 * @param rate the given value of rate
+	 * @return the nearest value between NO_RATE and MAX_RATE
+	 */
+	private static int bound(int rate) {
+		return Math.max(NO_RATE, Math.min(MAX_RATE, rate));
 	}
 
 	/**
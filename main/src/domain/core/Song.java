@@ -1,6 +1,8 @@
 package domain.core;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import domain.facade.ISong;
 import util.adts.RegExpMatchable;
@@ -11,14 +13,27 @@ import util.adts.RegExpMatchable;
  * Song objects represent songs, where each song has a filename where the song
  * is located (mp3 format), its meta-info, how many times the song was played and
  * its rate.
+ * 
+ * The rate and the number of times the song was played are updated atomically, since
+ * they are changed both by the player (when a song ends) and by the user interface.
+ * Both are packed in a single long (the times played in the upper half and the rate
+ * in the lower half), so updating them neither locks nor allocates objects.
  *
  */
 public class Song implements ISong, RegExpMatchable {
 	
-	private SongMetaInfo info;
+	private static final int NO_ID = -1;
+	private static final int RATE_BITS = 32;
+	private static final long RATE_MASK = (1L << RATE_BITS) - 1;
+	private static final long ONE_PLAY = 1L << RATE_BITS;
+	
+	private volatile int id;
+	private volatile long rank;
+	private volatile SongMetaInfo info;
+	private volatile String searchableText;
 	private String fileName;
-	private int timesPlayed;
-	private Rate rate;
+	private final AtomicLong stats;
+	private volatile FileStamp stamp;
 
 	/**
 	 * Creates a Song object with the given parameters
@@ -26,10 +41,64 @@ public class Song implements ISong, RegExpMatchable {
 	 * @param fileName the filename of the song
 	 */
 	public Song(SongMetaInfo info, String fileName) {
+		this.id = NO_ID;
 		this.info = info;
+		this.searchableText = info.toString();
 		this.fileName = fileName;
-		timesPlayed = 0;
-		rate = new Rate();
+		stats = new AtomicLong(pack(0, Rate.NO_RATE));
+		stamp = null;
+	}
+	
+	/**
+	 * Creates a Song object with the given parameters, restoring its statistics
+	 * @param info the meta-info record of the song
+	 * @param fileName the filename of the song
+	 * @param rate the rate of the song
+	 * @param timesPlayed how many times the song was played
+	 * @requires rate != null && timesPlayed >= 0
+	 */
+	public Song(SongMetaInfo info, String fileName, Rate rate, int timesPlayed) {
+		this(info, fileName);
+		stats.set(pack(timesPlayed, rate.getRate()));
+	}
+	
+	/**
+	 * Returns the id given to the song by the library, or -1 if the song
+	 * was never added to a library
+	 * 
+	 * @return the id of the song
+	 */
+	@Override
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Sets the id of the song
+	 * 
+	 * @param id the id given by the library
+	 */
+	void setId(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * Returns the rank of the song in its library: songs that come first in the
+	 * library have smaller ranks
+	 * 
+	 * @return the rank of the song
+	 */
+	long getRank() {
+		return rank;
+	}
+	
+	/**
+	 * Sets the rank of the song in its library
+	 * 
+	 * @param rank the rank given by the library
+	 */
+	void setRank(long rank) {
+		this.rank = rank;
 	}
 	
 	/**
@@ -37,7 +106,7 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public void incTimesPlayed() {
-		timesPlayed++;
+		stats.getAndUpdate(s -> timesPlayedOf(s) == Integer.MAX_VALUE ? s : s + ONE_PLAY);
 	}
 
 	/**
@@ -48,7 +117,7 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public int getTimesPlayed() {
-		return timesPlayed;
+		return timesPlayedOf(stats.get());
 	}
 
 	/**
@@ -59,23 +128,54 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public Rate getRating() {
-		return rate;
+		return Rate.of(rateOf(stats.get()));
 	}
 
 	/**
-	 * Increments the rate of the song
+	 * Increments the rate of the song, if it is not the maximum rate
 	 */
 	@Override
 	public void incRating() {
-		rate = new Rate(rate.getRate()+1);
+		stats.getAndUpdate(s -> rateOf(s) < Rate.MAX_RATE ? s + 1 : s);
 	}
 
 	/**
-	 * Decrements the rate of the song
+	 * Decrements the rate of the song, if it is above the minimum rate
 	 */
 	@Override
 	public void decRating() {
-		rate = new Rate(rate.getRate()-1);
+		stats.getAndUpdate(s -> rateOf(s) > Rate.MIN_RATE ? s - 1 : s);
+	}
+	
+	/**
+	 * Packs the number of times played and the rate of a song in a single long
+	 * 
+	 * @param timesPlayed how many times the song was played
+	 * @param rate the value of the rate of the song
+	 * @return the packed statistics
+	 */
+	private static long pack(int timesPlayed, int rate) {
+		return ((long) timesPlayed << RATE_BITS) | rate;
+	}
+	
+	/**
+	 * Returns the number of times played of the packed statistics
+	 * 
+	 * @param stats the packed statistics
+	 * @return how many times the song was played
+	 */
+	private static int timesPlayedOf(long stats) {
+		return (int) (stats >>> RATE_BITS);
+	}
+	
+	/**
+	 * Returns the value of the rate of the packed statistics
+	 * 
+	 * @param stats the packed statistics
+	 * @return the value of the rate of the song
+	 */
+	private static int rateOf(long stats) {
+		return (int) (stats & RATE_MASK);
 	}
 
 	/**
@@ -128,13 +228,73 @@ public class Song implements ISong, RegExpMatchable {
 		return fileName;
 	}
 	
+	/**
+	 * Sets how many times the song was played, when restoring its statistics
+	 * 
+	 * @param timesPlayed how many times the song was played
+	 * @requires timesPlayed >= 0
+	 */
+	public void setTimesPlayed(int timesPlayed) {
+		stats.getAndUpdate(s -> pack(timesPlayed, rateOf(s)));
+	}
+	
+	/**
+	 * Sets the rate of the song, when restoring its statistics
+	 * 
+	 * @param rate the rate of the song
+	 * @requires rate != null
+	 */
+	public void setRating(Rate rate) {
+		stats.getAndUpdate(s -> pack(timesPlayedOf(s), rate.getRate()));
+	}
+	
+	/**
+	 * Returns the stamp of the file of the song when it was last read, or null if
+	 * it is not known
+	 * 
+	 * @return the stamp of the file of the song, possibly null
+	 */
+	public FileStamp getFileStamp() {
+		return stamp;
+	}
+	
+	/**
+	 * Sets the stamp of the file of the song when it was last read
+	 * 
+	 * @param stamp the stamp of the file, possibly null
+	 */
+	public void setFileStamp(FileStamp stamp) {
+		this.stamp = stamp;
+	}
+	
+	/**
+	 * Returns the meta-info record of the song
+	 * 
+	 * @return the meta-info of the song
+	 */
+	SongMetaInfo getMetaInfo() {
+		return info;
+	}
+	
+	/**
+	 * Replaces the meta-info of the song, keeping its rate and how many times it
+	 * was played
+	 * 
+	 * @param info the new meta-info record of the song
+	 * @requires info != null
+	 */
+	void setMetaInfo(SongMetaInfo info) {
+		this.searchableText = info.toString();
+		this.info = info;
+	}
+	
 	/**
 	 * Checks if two songs are equal
 	 * @param s the other song
 	 * @return true if the songs are equal, false if otherwise
 	 */
 	public boolean equalsSong(Song s) {
-		return fileName.equals(s.getFilename()) && rate.equalsRate(s.getRating()) && timesPlayed == s.getTimesPlayed()
+		return fileName.equals(s.getFilename()) && getRating().equalsRate(s.getRating()) && getTimesPlayed() == s.getTimesPlayed()
 			&& getSongTitle().equals(s.getSongTitle()) && getGenre().equals(s.getGenre())
 			&& getArtists().equals(s.getArtists()) && getAlbum().equals(s.getAlbum());
 	}
@@ -147,7 +307,20 @@ public class Song implements ISong, RegExpMatchable {
 	 */
 	@Override
 	public boolean matches(String regexp) {
-		return info.matches(regexp);
+		return matches(Pattern.compile(regexp));
+	}
+	
+	/**
+	 * Checks if the song matches the compiled regex expression. The textual
+	 * representation of the meta-info is computed once, when the meta-info
+	 * is set, instead of on every match.
+	 * 
+	 * @param pattern the compiled regular expression (regex)
+	 * @return true if the song matches the regex, false if otherwise
+	 */
+	@Override
+	public boolean matches(Pattern pattern) {
+		return pattern.matcher(searchableText).find();
 	}
 	
 	/**
@@ -161,7 +334,7 @@ public class Song implements ISong, RegExpMatchable {
 		sb.append(" --- ");
 		sb.append(getRating().getRate());
 		sb.append(" -- ");
-		sb.append(timesPlayed);
+		sb.append(getTimesPlayed());
 		return sb.toString();
 	}
 
@@ -0,0 +1,38 @@
+package domain.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A SongBatchAddedLibraryEvent is a concrete event of SongLibraryEvent (generic event)
+ * which is created when several songs are added to the library at once.
+ * The modified song is the last song of the batch.
+ *
+ */
+public class SongBatchAddedLibraryEvent extends SongLibraryEvent{
+	
+	private List<Song> addedSongs;
+
+	/**
+	 * Creates a concrete event with the given added songs
+	 * 
+	 * @param addedSongs - the songs added, in the order they were added
+	 * @requires !addedSongs.isEmpty()
+	 */
+	public SongBatchAddedLibraryEvent(List<Song> addedSongs) {
+		super(addedSongs.get(addedSongs.size()-1));
+		this.addedSongs = Collections.unmodifiableList(addedSongs);
+	}
+	
+	/**
+	 * Returns the added songs
+	 * 
+	 * @return the added songs, in the order they were added
+	 */
+	public List<Song> getAddedSongs() {
+		return addedSongs;
+	}
+	
+}
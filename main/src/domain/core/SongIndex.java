@@ -0,0 +1,457 @@
+package domain.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+import util.observer.Listener;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * SongIndex objects are inverted indexes over the songs of a library. Each word of
+ * the title, album, genre and artists of a song is mapped to the ids of the songs
+ * that contain it, so term, prefix, AND and OR queries do not need to go through
+ * the whole library.
+ *
+ * The index also maps every sequence of three characters of the searchable text of
+ * the songs to the ids of the songs that contain it, which is used to discard songs
+ * that cannot match a regex before running it.
+ *
+ * The index is kept up to date by listening to the events emitted by the library.
+ * Songs are indexed by their id. Results are sorted by the rank of the songs, so they
+ * are given in the order of the library, as if the library was gone through, even after
+ * songs were moved. The index may be searched and updated by different
+ * threads; a song removed from the library but not yet from the index is left out
+ * of the results.
+ *
+ */
+public class SongIndex implements Listener<SongLibraryEvent> {
+
+	private static final int GRAM_LENGTH = 3;
+	private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+	private static final String OPTIONAL_QUANTIFIERS = "?*{";
+	private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private IntFunction<Song> songs;
+	private BitSet indexed;
+	private TreeMap<String, PostingList> tokens;
+	private Map<String, PostingList> grams;
+
+	/**
+	 * Creates an empty index
+	 *
+	 * @param songs gives the song of the library with each id
+	 */
+	public SongIndex(IntFunction<Song> songs) {
+		this.songs = songs;
+		indexed = new BitSet();
+		tokens = new TreeMap<>();
+		grams = new HashMap<>();
+	}
+
+	/**
+	 * Reaction to the events emitted by the library. Added songs are indexed,
+	 * removed songs are taken out of the index and updated songs are indexed
+	 * again with their new meta-info.
+	 */
+	@Override
+	public void processEvent(SongLibraryEvent e) {
+		if(e instanceof SongAddedLibraryEvent)
+			add(e.getModifiedSong());
+		else if(e instanceof SongBatchAddedLibraryEvent batch)
+			for(Song song : batch.getAddedSongs())
+				add(song);
+		else if(e instanceof SongRemovedLibraryEvent)
+			remove(e.getModifiedSong());
+		else if(e instanceof SongUpdatedLibraryEvent update)
+			update(e.getModifiedSong(), update.getPreviousMetaInfo());
+	}
+
+	/**
+	 * Adds a song to the index, if it is not there yet
+	 *
+	 * @param song the song to be added
+	 * @requires song != null && song.getId() >= 0
+	 */
+	public synchronized void add(Song song) {
+		int id = song.getId();
+		if(!indexed.get(id)) {
+			indexed.set(id);
+			index(id, song.getMetaInfo());
+		}
+	}
+
+	/**
+	 * Removes a song from the index, if it is there
+	 *
+	 * @param song the song to be removed
+	 */
+	public synchronized void remove(Song song) {
+		int id = song.getId();
+		if(indexed.get(id)) {
+			indexed.clear(id);
+			unindex(id, song.getMetaInfo());
+		}
+	}
+
+	/**
+	 * Indexes a song again after its meta-info was replaced, if it is in the index
+	 *
+	 * @param song the updated song
+	 * @param previousInfo the meta-info the song had when it was indexed
+	 */
+	public synchronized void update(Song song, SongMetaInfo previousInfo) {
+		int id = song.getId();
+		if(indexed.get(id)) {
+			unindex(id, previousInfo);
+			index(id, song.getMetaInfo());
+		}
+	}
+
+	/**
+	 * Maps the words and the sequences of characters of the meta-info to the id
+	 *
+	 * @param id the id of the song
+	 * @param info the meta-info of the song
+	 */
+	private void index(int id, SongMetaInfo info) {
+		for(String token : tokensOf(info))
+			tokens.computeIfAbsent(token, k -> new PostingList()).add(id);
+		for(String gram : gramsOf(fold(info.toString())))
+			grams.computeIfAbsent(gram, k -> new PostingList()).add(id);
+	}
+
+	/**
+	 * Removes the id from the words and the sequences of characters of the meta-info
+	 *
+	 * @param id the id of the song
+	 * @param info the meta-info the song had when it was indexed
+	 */
+	private void unindex(int id, SongMetaInfo info) {
+		for(String token : tokensOf(info))
+			removeFrom(tokens, token, id);
+		for(String gram : gramsOf(fold(info.toString())))
+			removeFrom(grams, gram, id);
+	}
+
+	/**
+	 * Returns the songs that have the given word in their title, album, genre or artists
+	 * (ignoring case)
+	 *
+	 * @param term the given word
+	 * @requires term != null
+	 * @return the songs that contain term
+	 */
+	public synchronized List<Song> term(String term) {
+		return toSongs(tokens.get(fold(term)));
+	}
+
+	/**
+	 * Returns the songs that have a word starting with the given prefix in their
+	 * title, album, genre or artists (ignoring case)
+	 *
+	 * @param prefix the given prefix
+	 * @requires prefix != null
+	 * @return the songs that contain a word starting with prefix
+	 */
+	public synchronized List<Song> prefix(String prefix) {
+		String from = fold(prefix);
+		BitSet result = new BitSet();
+
+		for(PostingList list : tokens.subMap(from, true, from + Character.MAX_VALUE, false).values())
+			addAll(result, list);
+
+		return toSongs(result);
+	}
+
+	/**
+	 * Returns the songs that contain all of the given words
+	 *
+	 * @param terms the given words
+	 * @requires terms != null
+	 * @return the songs that contain every word in terms
+	 */
+	public synchronized List<Song> allTerms(String... terms) {
+		PostingList[] lists = new PostingList[terms.length];
+
+		for(int i = 0; i < terms.length; i++) {
+			lists[i] = tokens.get(fold(terms[i]));
+			if(lists[i] == null)
+				return new ArrayList<>();
+		}
+		if(lists.length == 0)
+			return new ArrayList<>();
+
+		return toSongs(intersect(lists));
+	}
+
+	/**
+	 * Returns the songs that contain at least one of the given words
+	 *
+	 * @param terms the given words
+	 * @requires terms != null
+	 * @return the songs that contain some word in terms
+	 */
+	public synchronized List<Song> anyTerm(String... terms) {
+		BitSet result = new BitSet();
+
+		for(String term : terms) {
+			PostingList list = tokens.get(fold(term));
+			if(list != null)
+				addAll(result, list);
+		}
+
+		return toSongs(result);
+	}
+
+	/**
+	 * Returns the songs that may match the given regex, if the regex has a literal
+	 * part long enough to be looked up in the index. Every song that matches the
+	 * regex is in the result, but not every song in the result matches it.
+	 *
+	 * @param regexp the regular expression (regex)
+	 * @requires regexp != null
+	 * @return the songs that may match regexp, or an empty optional if all
+	 * 		   the songs may match it
+	 */
+	public synchronized Optional<List<Song>> candidates(String regexp) {
+		String literal = fold(requiredLiteral(regexp));
+		if(literal.length() < GRAM_LENGTH)
+			return Optional.empty();
+
+		Set<String> literalGrams = gramsOf(literal);
+		PostingList[] lists = new PostingList[literalGrams.size()];
+		int i = 0;
+
+		for(String gram : literalGrams) {
+			lists[i] = grams.get(gram);
+			if(lists[i] == null)
+				return Optional.of(new ArrayList<>());
+			i++;
+		}
+
+		return Optional.of(toSongs(intersect(lists)));
+	}
+
+	/**
+	 * Returns the text at the beginning of the regex (after an optional ^ or .*) that
+	 * every match of the regex must contain. If the regex has alternatives, there is
+	 * no such text.
+	 *
+	 * @param regexp the regular expression (regex)
+	 * @return the text that every match of regexp contains
+	 */
+	private static String requiredLiteral(String regexp) {
+		if(regexp.indexOf('|') >= 0)
+			return "";
+
+		int start = 0;
+		if(regexp.startsWith("^"))
+			start++;
+		while(regexp.startsWith(".*", start) || regexp.startsWith(".+", start))
+			start += 2;
+
+		int end = start;
+		while(end < regexp.length() && REGEX_META_CHARS.indexOf(regexp.charAt(end)) < 0)
+			end++;
+
+		// the last character is optional if it is followed by ?, * or {
+		if(end > start && end < regexp.length() && OPTIONAL_QUANTIFIERS.indexOf(regexp.charAt(end)) >= 0)
+			end--;
+
+		return regexp.substring(start, end);
+	}
+
+	/**
+	 * Returns the words in the title, album, genre and artists of the meta-info
+	 *
+	 * @param info the meta-info of a song
+	 * @return the words of the meta-info, in lower case
+	 */
+	private static Set<String> tokensOf(SongMetaInfo info) {
+		Set<String> result = new HashSet<>();
+
+		addTokens(result, info.songTitle());
+		addTokens(result, info.album());
+		addTokens(result, info.genre());
+		for(String artist : info.artists())
+			addTokens(result, artist);
+
+		return result;
+	}
+
+	/**
+	 * Adds the words of the given text to the set
+	 *
+	 * @param result the set where the words are added
+	 * @param text the text, possibly null
+	 */
+	private static void addTokens(Set<String> result, String text) {
+		if(text != null)
+			for(String token : TOKEN_SEPARATOR.split(fold(text)))
+				if(!token.isEmpty())
+					result.add(token);
+	}
+
+	/**
+	 * Returns every sequence of GRAM_LENGTH characters of the given text
+	 *
+	 * @param text the text
+	 * @return the sequences of GRAM_LENGTH characters of text
+	 */
+	private static Set<String> gramsOf(String text) {
+		Set<String> result = new HashSet<>();
+
+		for(int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+			result.add(text.substring(i, i + GRAM_LENGTH));
+
+		return result;
+	}
+
+	/**
+	 * Turns every character of the text into lower case. Characters are converted one
+	 * by one, so that the conversion of a part of a text is always part of the
+	 * conversion of the whole text.
+	 *
+	 * @param text the text
+	 * @return the text in lower case
+	 */
+	private static String fold(String text) {
+		char[] chars = text.toCharArray();
+
+		for(int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(chars[i]);
+
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the intersection of the given lists, starting with the smallest ones
+	 *
+	 * @param lists the lists
+	 * @requires lists.length > 0
+	 * @return the ids present in every list
+	 */
+	private static PostingList intersect(PostingList[] lists) {
+		Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+		PostingList result = lists[0];
+
+		for(int i = 1; i < lists.length && result.size() > 0; i++)
+			result = result.and(lists[i]);
+
+		return result;
+	}
+
+	/**
+	 * Adds all the ids of the list to the set
+	 *
+	 * @param result the set of ids
+	 * @param list the list of ids
+	 */
+	private static void addAll(BitSet result, PostingList list) {
+		for(int i = 0; i < list.size(); i++)
+			result.set(list.get(i));
+	}
+
+	/**
+	 * Removes the id from the list of the given key, discarding the list if it gets empty
+	 *
+	 * @param postings the lists of ids per key
+	 * @param key the key
+	 * @param id the id to be removed
+	 */
+	private static void removeFrom(Map<String, PostingList> postings, String key, int id) {
+		PostingList list = postings.get(key);
+		if(list != null) {
+			list.remove(id);
+			if(list.size() == 0)
+				postings.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the songs with the ids in the list
+	 *
+	 * @param list the list of ids, possibly null
+	 * @return the songs with the ids in list, in the order of the library
+	 */
+	private List<Song> toSongs(PostingList list) {
+		List<Song> result = new ArrayList<>();
+
+		if(list != null)
+			for(int i = 0; i < list.size(); i++)
+				addSong(result, list.get(i));
+
+		return inLibraryOrder(result);
+	}
+
+	/**
+	 * Returns the songs with the ids in the set
+	 *
+	 * @param ids the set of ids
+	 * @return the songs with the ids in the set, in the order of the library
+	 */
+	private List<Song> toSongs(BitSet ids) {
+		List<Song> result = new ArrayList<>();
+
+		for(int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+			addSong(result, id);
+
+		return inLibraryOrder(result);
+	}
+
+	/**
+	 * Sorts the given songs in the order of the library. The songs are in the order they
+	 * were added, which is the order of the library unless some song was moved, so they
+	 * are only sorted if they are out of order. The rank of each song is read once, since
+	 * a song may be moved by another thread meanwhile.
+	 *
+	 * @param result the songs, in the order they were added
+	 * @return the songs of result, sorted by their rank
+	 */
+	private static List<Song> inLibraryOrder(List<Song> result) {
+		long[] ranks = new long[result.size()];
+		boolean sorted = true;
+		for(int i = 0; i < ranks.length; i++) {
+			ranks[i] = result.get(i).getRank();
+			sorted = sorted && (i == 0 || ranks[i - 1] <= ranks[i]);
+		}
+
+		if(!sorted) {
+			Integer[] positions = new Integer[ranks.length];
+			for(int i = 0; i < positions.length; i++)
+				positions[i] = i;
+			Arrays.sort(positions, Comparator.comparingLong(i -> ranks[i]));
+
+			List<Song> sortedSongs = new ArrayList<>(ranks.length);
+			for(int i : positions)
+				sortedSongs.add(result.get(i));
+			result = sortedSongs;
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the song with the given id to the list, if it is still in the library
+	 *
+	 * @param result the list
+	 * @param id the id of the song
+	 */
+	private void addSong(List<Song> result, int id) {
+		Song song = songs.apply(id);
+		if(song != null)
+			result.add(song);
+	}
+
+}
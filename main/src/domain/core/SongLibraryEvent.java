@@ -5,7 +5,8 @@ import util.observer.Event;
  * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
  *
  * SongLibraryEvent objects represent generic events for a song in a library.
- * The concrete events are SongAddedLibraryEvent, SongRemovedLibraryEvent and SongRatedLibraryEvent.
+ * The concrete events are SongAddedLibraryEvent, SongBatchAddedLibraryEvent, SongRemovedLibraryEvent,
+ * SongRatedLibraryEvent, SongUpdatedLibraryEvent and SongPlayedLibraryEvent.
  *
  */
 public abstract class SongLibraryEvent implements Event{
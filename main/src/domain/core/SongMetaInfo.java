@@ -1,9 +1,11 @@
 package domain.core;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import util.adts.InternPool;
 import util.adts.RegExpMatchable;
 
 /**
@@ -11,9 +13,37 @@ import util.adts.RegExpMatchable;
  *
  * SongMetaInfo objects are records that represent the meta-info of a song.
  * 
+ * The genre, album and artists are shared by many songs, so the meta-info of imported
+ * songs is created by interned, which gives every meta-info with the same genre (or
+ * album, or artist) the same String and every meta-info with the same artists the same
+ * immutable list, for as long as some song uses them.
+ * 
  */
 public record SongMetaInfo(String songTitle, String genre, List<String> artists, String album) implements RegExpMatchable{
 
+	private static final InternPool<String> NAMES = new InternPool<>();
+	private static final InternPool<List<String>> ARTIST_LISTS = new InternPool<>();
+	
+	/**
+	 * Creates the meta-info of a song, interning its genre, album and artists. The list
+	 * of artists is copied into an immutable list, so later changes to the given list
+	 * do not affect it.
+	 * 
+	 * @param songTitle the title of the song
+	 * @param genre the genre of the song
+	 * @param artists the artists of the song
+	 * @param album the album of the song
+	 * @return the meta-info of the song
+	 * @requires artists != null
+	 */
+	public static SongMetaInfo interned(String songTitle, String genre, List<String> artists, String album) {
+		String[] names = new String[artists.size()];
+		for(int i = 0; i < names.length; i++)
+			names[i] = NAMES.intern(artists.get(i));
+		List<String> shared = ARTIST_LISTS.intern(Collections.unmodifiableList(Arrays.asList(names)));
+		return new SongMetaInfo(songTitle, NAMES.intern(genre), shared, NAMES.intern(album));
+	}
+
 	/**
 	 * Checks if the meta-info matches the regex expression
 	 * 
@@ -22,9 +52,18 @@ public record SongMetaInfo(String songTitle, String genre, List<String> artists,
 	 */
 	@Override
 	public boolean matches(String regexp) {
-		String str = toString();
-		Matcher matcher = Pattern.compile(regexp).matcher(str);
-		return matcher.find();
+		return matches(Pattern.compile(regexp));
+	}
+	
+	/**
+	 * Checks if the meta-info matches the compiled regex expression
+	 * 
+	 * @param pattern the compiled regular expression (regex)
+	 * @return true if the meta-info matches the regex, false if otherwise
+	 */
+	@Override
+	public boolean matches(Pattern pattern) {
+		return pattern.matcher(toString()).find();
 	}
 	
 	/**
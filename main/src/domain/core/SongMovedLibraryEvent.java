@@ -0,0 +1,21 @@
+package domain.core;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A SongMovedLibraryEvent is a concrete event of SongLibraryEvent (generic event)
+ * which is created when a song is moved to another position of the library.
+ *
+ */
+public class SongMovedLibraryEvent extends SongLibraryEvent {
+	
+	/**
+	 * Creates a concrete event with a given modified song
+	 * 
+	 * @param modifedSong - a given modified song
+	 */
+	public SongMovedLibraryEvent(Song modifedSong) {
+		super(modifedSong);
+	}
+	
+}
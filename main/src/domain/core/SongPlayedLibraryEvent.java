@@ -0,0 +1,21 @@
+package domain.core;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A SongPlayedLibraryEvent is a concrete event of SongLibraryEvent (generic event)
+ * which is created when a song in the library is played until the end.
+ *
+ */
+public class SongPlayedLibraryEvent extends SongLibraryEvent{
+	
+	/**
+	 * Creates a concrete event with a given modified song
+	 * 
+	 * @param modifedSong - a given modified song
+	 */
+	public SongPlayedLibraryEvent(Song modifedSong) {
+		super(modifedSong);
+	}
+	
+}
@@ -0,0 +1,36 @@
+package domain.core;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A SongUpdatedLibraryEvent is a concrete event of SongLibraryEvent (generic event)
+ * which is created when the meta-info of a song in the library is replaced, after
+ * its file changed.
+ *
+ */
+public class SongUpdatedLibraryEvent extends SongLibraryEvent {
+
+	private SongMetaInfo previousInfo;
+
+	/**
+	 * Creates a concrete event with a given modified song and the meta-info it had
+	 * before being updated
+	 * 
+	 * @param modifedSong - a given modified song
+	 * @param previousInfo - the meta-info of the song before the update
+	 */
+	public SongUpdatedLibraryEvent(Song modifedSong, SongMetaInfo previousInfo) {
+		super(modifedSong);
+		this.previousInfo = previousInfo;
+	}
+
+	/**
+	 * Returns the meta-info of the song before the update
+	 * 
+	 * @return the previous meta-info of the modified song
+	 */
+	public SongMetaInfo getPreviousMetaInfo() {
+		return previousInfo;
+	}
+
+}
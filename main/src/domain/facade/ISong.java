@@ -12,6 +12,13 @@ import domain.core.Rate;
  */
 public interface ISong {
 
+	/**
+	 * Returns the id of the song in its library
+	 * 
+	 * @return the song's id, unique in its library
+	 */
+	int getId();
+
 	/**
 	 * Increments the number of times the song was played
 	 */
@@ -0,0 +1,19 @@
+package domain.facade;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A listener of the progress of an import of songs into the library
+ *
+ */
+public interface ImportProgressListener {
+
+	/**
+	 * Processes the progress of the import
+	 * 
+	 * @param processed the number of files already processed
+	 * @param total the number of files to be processed
+	 */
+	void importProgress(int processed, int total);
+
+}
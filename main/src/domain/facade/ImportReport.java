@@ -0,0 +1,161 @@
+package domain.facade;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * ImportReport objects represent the outcome of an import of songs into the library:
+ * how many songs were added, how many files were skipped (already in the library or
+ * without tags) and the error of each file that could not be read. The report of a
+ * rescan also tells how many songs were updated and removed.
+ *
+ */
+public class ImportReport {
+
+	private int added;
+	private int skipped;
+	private int updated;
+	private int removed;
+	private Map<Path, Exception> errors;
+
+	/**
+	 * Creates an empty report
+	 */
+	ImportReport() {
+		added = 0;
+		skipped = 0;
+		updated = 0;
+		removed = 0;
+		errors = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Registers that a song was added
+	 */
+	void songAdded() {
+		added++;
+	}
+
+	/**
+	 * Registers that a file was skipped
+	 */
+	void fileSkipped() {
+		skipped++;
+	}
+
+	/**
+	 * Registers that a song was updated
+	 */
+	void songUpdated() {
+		updated++;
+	}
+
+	/**
+	 * Registers that a song was removed
+	 */
+	void songRemoved() {
+		removed++;
+	}
+
+	/**
+	 * Adds the counts and the errors of the given report to this report
+	 * 
+	 * @param other the other report
+	 */
+	void merge(ImportReport other) {
+		added += other.added;
+		skipped += other.skipped;
+		updated += other.updated;
+		removed += other.removed;
+		errors.putAll(other.errors);
+	}
+
+	/**
+	 * Registers the error that occurred while reading the given file
+	 * 
+	 * @param file the file
+	 * @param error the error
+	 */
+	void fileFailed(Path file, Exception error) {
+		errors.put(file, error);
+	}
+
+	/**
+	 * Returns the number of songs added to the library
+	 * 
+	 * @return the number of songs added to the library
+	 */
+	public int getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the number of files skipped
+	 * 
+	 * @return the number of files skipped
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Returns the number of songs updated because their files changed
+	 * 
+	 * @return the number of songs updated
+	 */
+	public int getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * Returns the number of songs removed because their files no longer exist
+	 * 
+	 * @return the number of songs removed
+	 */
+	public int getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Returns the error of each file that could not be read, in the order the files were processed
+	 * 
+	 * @return the errors per file
+	 */
+	public Map<Path, Exception> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * Returns a textual representation of the report
+	 * 
+	 * @return textual representation of the report
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Added: ");
+		sb.append(added);
+		sb.append(", skipped: ");
+		sb.append(skipped);
+		sb.append(", updated: ");
+		sb.append(updated);
+		sb.append(", removed: ");
+		sb.append(removed);
+		sb.append(", errors: ");
+		sb.append(errors.size());
+		sb.append("\n");
+
+		for(Map.Entry<Path, Exception> error : errors.entrySet()) {
+			sb.append(error.getKey());
+			sb.append(" -- ");
+			sb.append(error.getValue());
+			sb.append("\n");
+		}
+
+		return sb.toString();
+	}
+
+}
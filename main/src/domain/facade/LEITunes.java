@@ -1,10 +1,14 @@
 package domain.facade;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import domain.core.MusicLibrary;
 import domain.playlists.PlaylistList;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * Initial object of the system, containing a MusicLibrary and PlaylistList and
  * its respective controllers.
@@ -16,6 +20,7 @@ public class LEITunes {
 	private PlaylistList pList;
 	private PlaylistListController plc;
 	private MusicLibraryController mlc;
+	private LibraryJournal journal;
 	
 	/**
 	 * Creates the initial object of the system
@@ -25,6 +30,7 @@ public class LEITunes {
 		pList = new PlaylistList(library);
 		plc = new PlaylistListController(pList, library);
 		mlc = new MusicLibraryController(library);
+		journal = null;
 	}
 	
 	/**
@@ -36,6 +42,59 @@ public class LEITunes {
 		return plc;
 	}
 	
+	/**
+	 * Loads the songs and playlists saved in the given catalog, if it exists
+	 * 
+	 * @param catalog the file of the catalog
+	 * @return true if the catalog exists and was loaded, false otherwise
+	 * @throws IOException if the catalog could not be read
+	 */
+	public boolean loadCatalog(Path catalog) throws IOException {
+		boolean exists = Files.exists(catalog);
+		if(exists)
+			LibraryCatalog.load(catalog, library, pList);
+		return exists;
+	}
+	
+	/**
+	 * Saves the songs and playlists to the given catalog
+	 * 
+	 * @param catalog the file of the catalog
+	 * @throws IOException if the catalog could not be written
+	 */
+	public void saveCatalog(Path catalog) throws IOException {
+		LibraryCatalog.save(library, pList, catalog);
+	}
+	
+	/**
+	 * Loads the songs and playlists saved in the given catalog, if it exists, replays the
+	 * changes kept in the given journal and starts keeping the following changes in it
+	 * 
+	 * @param catalog the file of the catalog
+	 * @param journal the file of the journal
+	 * @throws IOException if the catalog or the journal could not be read
+	 * @requires the journal is not open
+	 */
+	public void openJournal(Path catalog, Path journal) throws IOException {
+		this.journal = LibraryJournal.open(catalog, journal, library, pList);
+		mlc.setJournal(this.journal);
+	}
+	
+	/**
+	 * Saves the songs and playlists to the catalog of the journal, empties the journal
+	 * and stops keeping changes in it, if it is open
+	 * 
+	 * @throws IOException if the catalog could not be saved or the journal closed
+	 */
+	public void closeJournal() throws IOException {
+		if(journal != null) {
+			LibraryJournal open = journal;
+			journal = null;
+			mlc.setJournal(null);
+			open.close();
+		}
+	}
+	
 	/**
 	 * Gets the MusicLibraryController for this object
 	 * 
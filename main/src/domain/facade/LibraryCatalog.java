@@ -0,0 +1,250 @@
+package domain.facade;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import domain.core.FileStamp;
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongRatedLibraryEvent;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * Saves and loads the songs of a library (meta-info, filename, rate, times played and file stamp)
+ * and its manual playlists to and from a compact binary file, so the library can be
+ * restored without reading the mp3 files.
+ *
+ * Smart playlists are not saved: they are rebuilt from the events emitted while the
+ * songs are loaded.
+ *
+ */
+public final class LibraryCatalog {
+
+	private static final int MAGIC = 0x4C454943; // "LEIC"
+	static final int VERSION = 2;
+	private static final int VERSION_WITHOUT_STAMPS = 1;
+	private static final long NO_STAMP = -1;
+	private static final int NULL_STRING = -1;
+
+	/**
+	 * An utility class should not have public constructors
+	 */
+	private LibraryCatalog() {
+	}
+
+	/**
+	 * Saves the songs of the library and the manual playlists to the given file. The file
+	 * is first written to a temporary file that then replaces it, so a failed save never
+	 * leaves a broken catalog behind. The songs saved are those the library has when the
+	 * save starts; songs of the playlists that are no longer in the library, because
+	 * the playlists were not told of their removal yet, are left out.
+	 *
+	 * @param library the library
+	 * @param playlists the playlists of the library
+	 * @param file the file of the catalog
+	 * @throws IOException if the catalog could not be written
+	 */
+	public static void save(MusicLibrary library, PlaylistList playlists, Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		Map<Song, Integer> positions = new HashMap<>();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			List<Song> songs = new ArrayList<>();
+			for(Song song : library)
+				songs.add(song);
+			out.writeInt(songs.size());
+			for(Song song : songs) {
+				positions.put(song, positions.size());
+				writeSong(out, song);
+			}
+
+			List<Playlist> manual = new ArrayList<>();
+			for(Playlist playlist : playlists)
+				if(playlist instanceof ManualPlaylist)
+					manual.add(playlist);
+
+			out.writeInt(manual.size());
+			for(Playlist playlist : manual) {
+				List<Integer> saved = new ArrayList<>();
+				for(ISong song : playlist) {
+					Integer position = positions.get(song);
+					if(position != null)
+						saved.add(position);
+				}
+				writeString(out, playlist.getName());
+				out.writeInt(saved.size());
+				for(int position : saved)
+					out.writeInt(position);
+			}
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(tmp);
+			throw e;
+		}
+
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads the songs and manual playlists in the given file into the library and its
+	 * playlists. The file is memory-mapped and the songs are added in a single batch.
+	 * Songs already in the library are not added again. Catalogs written before file stamps
+	 * were saved are still read, leaving the stamps of their songs unknown.
+	 *
+	 * @param file the file of the catalog
+	 * @param library the library
+	 * @param playlists the playlists of the library
+	 * @throws IOException if the file could not be read or is not a valid catalog
+	 */
+	public static void load(Path file, MusicLibrary library, PlaylistList playlists) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Catalog too large: " + file);
+			MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			int version = in.getInt() == MAGIC ? in.getInt() : -1;
+			if(version != VERSION && version != VERSION_WITHOUT_STAMPS)
+				throw new IOException("Not a valid catalog: " + file);
+
+			int count = in.getInt();
+			List<Song> songs = new ArrayList<>(count);
+			List<Song> newSongs = new ArrayList<>(count);
+			for(int i = 0; i < count; i++) {
+				Song song = readSong(in, version);
+				Optional<Song> existing = library.getSongByFilename(song.getFilename());
+				if(existing.isPresent())
+					song = existing.get();
+				else
+					newSongs.add(song);
+				songs.add(song);
+			}
+
+			library.addAll(newSongs);
+			for(Song song : newSongs)
+				if(song.getRating().getRate() > 0)
+					library.emitEvent(new SongRatedLibraryEvent(song));
+
+			int playlistCount = in.getInt();
+			for(int i = 0; i < playlistCount; i++) {
+				Playlist playlist = new ManualPlaylist(readString(in), library);
+				int size = in.getInt();
+				for(int j = 0; j < size; j++)
+					playlist.add(songs.get(in.getInt()));
+				playlists.add(playlist);
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException("Truncated catalog: " + file, e);
+		}
+	}
+
+	/**
+	 * Writes the filename, meta-info, rate, times played and file stamp of a song
+	 *
+	 * @param out the output of the catalog
+	 * @param song the song
+	 * @throws IOException if the song could not be written
+	 */
+	static void writeSong(DataOutputStream out, Song song) throws IOException {
+		writeString(out, song.getFilename());
+		writeString(out, song.getSongTitle());
+		writeString(out, song.getAlbum());
+		writeString(out, song.getGenre());
+		out.writeInt(song.getArtists().size());
+		for(String artist : song.getArtists())
+			writeString(out, artist);
+		out.writeByte(song.getRating().getRate());
+		out.writeInt(song.getTimesPlayed());
+		FileStamp stamp = song.getFileStamp();
+		out.writeLong(stamp == null ? NO_STAMP : stamp.size());
+		out.writeLong(stamp == null ? NO_STAMP : stamp.lastModified());
+	}
+
+	/**
+	 * Reads a song written by writeSong
+	 *
+	 * @param in the buffer of the catalog
+	 * @param version the version of the catalog
+	 * @return the song read
+	 */
+	static Song readSong(ByteBuffer in, int version) {
+		String filename = readString(in);
+		String title = readString(in);
+		String album = readString(in);
+		String genre = readString(in);
+		int artistCount = in.getInt();
+		List<String> artists = new ArrayList<>(artistCount);
+		for(int i = 0; i < artistCount; i++)
+			artists.add(readString(in));
+		int rate = in.get();
+		int timesPlayed = in.getInt();
+
+		SongMetaInfo info = SongMetaInfo.interned(title, genre, artists, album);
+		Song song = new Song(info, filename, Rate.of(rate), timesPlayed);
+		if(version != VERSION_WITHOUT_STAMPS) {
+			long size = in.getLong();
+			long lastModified = in.getLong();
+			if(size != NO_STAMP)
+				song.setFileStamp(new FileStamp(size, lastModified));
+		}
+		return song;
+	}
+
+	/**
+	 * Writes a string, possibly null, as its length followed by its UTF-8 bytes
+	 *
+	 * @param out the output of the catalog
+	 * @param s the string
+	 * @throws IOException if the string could not be written
+	 */
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		if(s == null)
+			out.writeInt(NULL_STRING);
+		else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Reads a string written by writeString
+	 *
+	 * @param in the buffer of the catalog
+	 * @return the string read, possibly null
+	 */
+	static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		String s = null;
+		if(length != NULL_STRING) {
+			byte[] bytes = new byte[length];
+			in.get(bytes);
+			s = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return s;
+	}
+
+}
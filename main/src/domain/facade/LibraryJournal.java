@@ -0,0 +1,507 @@
+package domain.facade;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongBatchAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongUpdatedLibraryEvent;
+import domain.playlists.PlaylistList;
+import util.observer.Listener;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * LibraryJournal objects keep the changes made to a library durable between saves of
+ * its catalog. Every song added, removed, rated, updated or played is appended to a
+ * journal file, keyed by the filename of the song and with the new values (not the
+ * increments), so replaying a record twice gives the same library.
+ *
+ * Records are written and forced to disk by a background thread, which writes all the
+ * records appended while the previous force was running at once (group commit). Once
+ * the journal has enough records it is compacted: the catalog is saved and the journal
+ * is emptied. When the journal is opened, the catalog is loaded and the records in
+ * the journal are replayed on top of it; a record cut short by a crash is discarded.
+ *
+ * A change that could not be journaled does not stop the change itself: the failure
+ * is kept, thrown by flush and reported by getFailure, until a compaction saves the
+ * whole library in the catalog again.
+ *
+ */
+public final class LibraryJournal implements Listener<SongLibraryEvent>, AutoCloseable {
+
+	private static final int COMPACTION_THRESHOLD = 4096;
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private static final byte ADDED = 1;
+	private static final byte REMOVED = 2;
+	private static final byte RATED = 3;
+	private static final byte PLAYED = 4;
+	private static final byte UPDATED = 5;
+
+	private MusicLibrary library;
+	private PlaylistList playlists;
+	private Path catalog;
+	private FileChannel channel;
+	private int records;
+
+	private final Object lock = new Object();
+	private ByteArrayOutputStream pending;
+	private long appended;
+	private long durable;
+	private IOException failure;
+	private boolean closed;
+	private Thread writer;
+
+	/**
+	 * Creates a journal that appends to the given channel
+	 *
+	 * @param library the library
+	 * @param playlists the playlists of the library
+	 * @param catalog the file of the catalog
+	 * @param channel the channel of the journal file, positioned at its end
+	 * @param records the number of records already in the journal file
+	 */
+	private LibraryJournal(MusicLibrary library, PlaylistList playlists, Path catalog, FileChannel channel, int records) {
+		this.library = library;
+		this.playlists = playlists;
+		this.catalog = catalog;
+		this.channel = channel;
+		this.records = records;
+		pending = new ByteArrayOutputStream();
+		appended = 0;
+		durable = 0;
+		failure = null;
+		closed = false;
+		writer = new Thread(this::writeRecords, "library-journal");
+		writer.setDaemon(true);
+	}
+
+	/**
+	 * Loads the catalog, if it exists, replays the journal on top of it and starts
+	 * journaling the changes made to the library
+	 *
+	 * @param catalog the file of the catalog
+	 * @param journal the file of the journal
+	 * @param library the library
+	 * @param playlists the playlists of the library
+	 * @return the journal of the library
+	 * @throws IOException if the catalog or the journal could not be read
+	 */
+	public static LibraryJournal open(Path catalog, Path journal, MusicLibrary library, PlaylistList playlists)
+			throws IOException {
+		if(Files.exists(catalog))
+			LibraryCatalog.load(catalog, library, playlists);
+
+		FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ,
+											   StandardOpenOption.WRITE);
+		LibraryJournal result;
+		try {
+			ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+			while(in.hasRemaining() && channel.read(in) >= 0);
+			in.flip();
+
+			int replayed = replay(in, library);
+			channel.truncate(in.position());
+			channel.position(in.position());
+			result = new LibraryJournal(library, playlists, catalog, channel, replayed);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		library.registerListener(result);
+		result.writer.start();
+		return result;
+	}
+
+	/**
+	 * Applies the records in the buffer to the library, stopping at the first record
+	 * that is incomplete or corrupted
+	 *
+	 * @param in the contents of the journal, positioned after the last record applied
+	 * 			 once the method returns
+	 * @param library the library
+	 * @return the number of records applied
+	 */
+	private static int replay(ByteBuffer in, MusicLibrary library) {
+		List<Song> added = new ArrayList<>();
+		int count = 0;
+		boolean valid = true;
+
+		while(valid && in.remaining() >= RECORD_HEADER_SIZE) {
+			int start = in.position();
+			int length = in.getInt();
+			int checksum = in.getInt();
+			valid = length > 0 && length <= in.remaining() && checksum == checksum(in.array(), in.position(), length);
+			if(valid) {
+				ByteBuffer record = in.slice(in.position(), length);
+				in.position(in.position() + length);
+				try {
+					apply(record, library, added);
+					count++;
+				} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+					valid = false;
+				}
+			}
+			if(!valid)
+				in.position(start);
+		}
+
+		library.addAll(added);
+		return count;
+	}
+
+	/**
+	 * Applies a record to the library. Consecutive added songs are kept in the given
+	 * list and added in a single batch before the next record of another kind.
+	 *
+	 * @param record the contents of the record
+	 * @param library the library
+	 * @param added the songs added by the previous records and not yet in the library
+	 */
+	private static void apply(ByteBuffer record, MusicLibrary library, List<Song> added) {
+		byte type = record.get();
+
+		if(type == ADDED) {
+			Song song = LibraryCatalog.readSong(record, LibraryCatalog.VERSION);
+			if(!library.contains(song.getFilename()))
+				added.add(song);
+		} else {
+			library.addAll(added);
+			added.clear();
+
+			if(type == UPDATED) {
+				Song reread = LibraryCatalog.readSong(record, LibraryCatalog.VERSION);
+				Optional<Song> song = library.getSongByFilename(reread.getFilename());
+				if(song.isPresent())
+					library.update(song.get(), reread);
+			} else {
+				Optional<Song> song = library.getSongByFilename(LibraryCatalog.readString(record));
+				if(song.isPresent())
+					applyStatistic(type, record, library, song.get());
+			}
+		}
+	}
+
+	/**
+	 * Applies a removal, rate or play record to a song of the library
+	 *
+	 * @param type the type of the record
+	 * @param record the rest of the record
+	 * @param library the library
+	 * @param song the song of the record
+	 */
+	private static void applyStatistic(byte type, ByteBuffer record, MusicLibrary library, Song song) {
+		switch(type) {
+		case REMOVED -> library.remove(song);
+		case RATED -> {
+			int rate = record.get();
+			song.setRating(Rate.of(rate));
+			library.emitEvent(new SongRatedLibraryEvent(song));
+		}
+		case PLAYED -> {
+			song.setTimesPlayed(record.getInt());
+			library.emitEvent(new SongPlayedLibraryEvent(song));
+		}
+		default -> throw new IndexOutOfBoundsException("Unknown journal record: " + type);
+		}
+	}
+
+	/**
+	 * Reaction to the events emitted by the library. Each change is appended to the
+	 * journal and, once there are enough records, the journal is compacted. Since the
+	 * event is emitted by whoever changed the library, a failure is not thrown but kept
+	 * and reported by getFailure. Events delivered after the journal is closed are ignored.
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		if(!isClosed()) {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(bytes);
+
+				if(e instanceof SongBatchAddedLibraryEvent batch)
+					for(Song song : batch.getAddedSongs())
+						append(bytes, out, ADDED, song);
+				else if(e instanceof SongAddedLibraryEvent)
+					append(bytes, out, ADDED, e.getModifiedSong());
+				else if(e instanceof SongUpdatedLibraryEvent)
+					append(bytes, out, UPDATED, e.getModifiedSong());
+				else if(e instanceof SongRemovedLibraryEvent)
+					append(bytes, out, REMOVED, e.getModifiedSong());
+				else if(e instanceof SongRatedLibraryEvent)
+					append(bytes, out, RATED, e.getModifiedSong());
+				else if(e instanceof SongPlayedLibraryEvent)
+					append(bytes, out, PLAYED, e.getModifiedSong());
+
+				if(records >= COMPACTION_THRESHOLD)
+					compactRecords();
+			} catch (IOException ex) {
+				synchronized(lock) {
+					failure = failure == null ? ex : failure;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the first failure to journal a change or to compact the journal since
+	 * the last compaction that succeeded, if any
+	 *
+	 * @return the failure, or an empty Optional if every change was journaled
+	 */
+	public Optional<IOException> getFailure() {
+		synchronized(lock) {
+			return Optional.ofNullable(failure);
+		}
+	}
+
+	/**
+	 * Checks if the journal was closed
+	 *
+	 * @return true if the journal was closed, false otherwise
+	 */
+	private boolean isClosed() {
+		synchronized(lock) {
+			return closed;
+		}
+	}
+
+	/**
+	 * Encodes a record and hands it to the writer thread
+	 *
+	 * @param bytes the buffer where the record is encoded
+	 * @param out the output over bytes
+	 * @param type the type of the record
+	 * @param song the song of the record
+	 * @throws IOException if the record could not be encoded
+	 */
+	private void append(ByteArrayOutputStream bytes, DataOutputStream out, byte type, Song song) throws IOException {
+		bytes.reset();
+		out.writeByte(type);
+		switch(type) {
+		case ADDED, UPDATED -> LibraryCatalog.writeSong(out, song);
+		case RATED -> {
+			LibraryCatalog.writeString(out, song.getFilename());
+			out.writeByte(song.getRating().getRate());
+		}
+		case PLAYED -> {
+			LibraryCatalog.writeString(out, song.getFilename());
+			out.writeInt(song.getTimesPlayed());
+		}
+		default -> LibraryCatalog.writeString(out, song.getFilename());
+		}
+		out.flush();
+
+		byte[] record = bytes.toByteArray();
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		header.putInt(record.length);
+		header.putInt(checksum(record, 0, record.length));
+
+		synchronized(lock) {
+			if(closed)
+				throw new IOException("Journal closed");
+			pending.write(header.array());
+			pending.write(record);
+			appended++;
+			lock.notifyAll();
+		}
+		records++;
+	}
+
+	/**
+	 * Writes the pending records to the journal file and forces them to disk, until the
+	 * journal is closed. Records appended while a force is running are written together.
+	 */
+	private void writeRecords() {
+		boolean running = true;
+
+		while(running) {
+			byte[] batch = null;
+			long upTo = 0;
+			synchronized(lock) {
+				while(pending.size() == 0 && !closed)
+					waitLock();
+				running = pending.size() > 0;
+				if(running) {
+					batch = pending.toByteArray();
+					pending.reset();
+					upTo = appended;
+				}
+			}
+
+			if(running) {
+				IOException error = null;
+				try {
+					ByteBuffer buffer = ByteBuffer.wrap(batch);
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+					channel.force(false);
+				} catch (IOException e) {
+					error = e;
+				}
+				synchronized(lock) {
+					failure = failure == null ? error : failure;
+					durable = upTo;
+					lock.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until every change made to the library so far is on disk
+	 *
+	 * @throws IOException if some record could not be written
+	 */
+	public void flush() throws IOException {
+		library.flush();
+		awaitDurable();
+	}
+
+	/**
+	 * Waits until every record appended so far is on disk. Unlike flush, it does not
+	 * wait for the events of the library, so it can be called by a listener of the
+	 * library or while holding the lock of the journal.
+	 *
+	 * @throws IOException if some record could not be written
+	 */
+	private void awaitDurable() throws IOException {
+		synchronized(lock) {
+			awaitWritten();
+			if(failure != null)
+				throw failure;
+		}
+	}
+
+	/**
+	 * Waits until the writer is done with every record appended so far, whether it
+	 * could write them or not
+	 *
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 * @requires the caller holds the lock of the writer
+	 */
+	private void awaitWritten() throws InterruptedIOException {
+		long target = appended;
+		while(durable < target) {
+			try {
+				lock.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while flushing the journal");
+			}
+		}
+	}
+
+	/**
+	 * Saves the catalog of the library and empties the journal, whose records are
+	 * all in the saved catalog. The events of the library are waited for before the
+	 * journal is locked, since they are delivered to the journal under the same lock.
+	 *
+	 * @throws IOException if the catalog could not be saved or the journal emptied
+	 */
+	public void compact() throws IOException {
+		library.flush();
+		synchronized(this) {
+			compactRecords();
+		}
+	}
+
+	/**
+	 * Saves the catalog of the library and empties the journal, without waiting for
+	 * the events of the library. Records of changes made while the catalog is saved
+	 * may be appended afterwards; since they keep the new values, replaying them on
+	 * top of the catalog gives the same library. Once the catalog is saved, earlier
+	 * failures to write the journal are forgotten, since the catalog has every change.
+	 *
+	 * @throws IOException if the catalog could not be saved or the journal emptied
+	 * @requires the caller holds the lock of the journal
+	 */
+	private void compactRecords() throws IOException {
+		synchronized(lock) {
+			awaitWritten();
+		}
+		LibraryCatalog.save(library, playlists, catalog);
+		channel.truncate(0);
+		channel.force(true);
+		records = 0;
+		synchronized(lock) {
+			failure = null;
+		}
+	}
+
+	/**
+	 * Compacts the journal, stops journaling the changes made to the library and closes
+	 * the journal file. Changes whose events were not delivered yet are waited for.
+	 *
+	 * @throws IOException if the journal could not be compacted or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		library.flush();
+		synchronized(this) {
+			library.unregisterListener(this);
+			try {
+				compactRecords();
+			} finally {
+				synchronized(lock) {
+					closed = true;
+					lock.notifyAll();
+				}
+				try {
+					writer.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Waits on the lock of the writer. The writer only stops when the journal is
+	 * closed, so interruptions are ignored.
+	 */
+	private void waitLock() {
+		try {
+			lock.wait();
+		} catch (InterruptedException e) {
+			// the writer stops when the journal is closed
+		}
+	}
+
+	/**
+	 * Returns the CRC-32 of the given bytes
+	 *
+	 * @param bytes the bytes
+	 * @param offset the position of the first byte
+	 * @param length the number of bytes
+	 * @return the checksum of the bytes
+	 */
+	private static int checksum(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+}
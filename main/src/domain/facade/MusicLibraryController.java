@@ -1,29 +1,46 @@
 package domain.facade;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import com.mpatric.mp3agic.ID3v1;
-import com.mpatric.mp3agic.ID3v2;
-import com.mpatric.mp3agic.InvalidDataException;
-import com.mpatric.mp3agic.Mp3File;
-import com.mpatric.mp3agic.UnsupportedTagException;
-
+import domain.core.FileStamp;
 import domain.core.MusicLibrary;
 import domain.core.Song;
 import domain.core.SongMetaInfo;
+import servicos.ID3Tag;
+import servicos.ID3TagReader;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * A controller that manages the interactions with MusicLibrary
  *
  */
 public class MusicLibraryController {
 	
+	private static final String MP3_EXTENSION = ".mp3";
+	private static final int IMPORT_BATCH_SIZE = 512;
+	private static final int IMPORT_WORKERS = Runtime.getRuntime().availableProcessors();
+	
 	private MusicLibrary library;
+	private int searchParallelism;
+	private LibraryJournal journal;
 
 	/**
 	 * Creates the controller for the given library
@@ -32,6 +49,60 @@ public class MusicLibraryController {
 	 */
 	public MusicLibraryController(MusicLibrary library) {
 		this.library = library;
+		this.searchParallelism = Runtime.getRuntime().availableProcessors();
+		this.journal = null;
+	}
+	
+	/**
+	 * Sets the journal where the changes made to the library are kept
+	 * 
+	 * @param journal the journal of the library, or null if it is not journaled
+	 */
+	void setJournal(LibraryJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Gets the failure to keep some change made to the library in its journal, if any.
+	 * The change itself was made, but it may be lost if the system stops before the
+	 * catalog is saved.
+	 * 
+	 * @return the failure of the journal, or an empty Optional if every change was kept
+	 * 		   or the library is not journaled
+	 */
+	public Optional<IOException> getJournalFailure() {
+		LibraryJournal current = journal;
+		return current == null ? Optional.empty() : current.getFailure();
+	}
+	
+	/**
+	 * Sets the number of threads used to search the library, up to the parallelism of the
+	 * common fork/join pool. Small libraries are always searched by a single thread.
+	 * 
+	 * @param parallelism the number of threads used to search the library
+	 * @requires parallelism > 0
+	 */
+	public void setSearchParallelism(int parallelism) {
+		this.searchParallelism = parallelism;
+	}
+	
+	/**
+	 * Sets whether the events of the library are delivered to the playlists (and other
+	 * listeners) by a separate thread, so adding, removing or rating songs does not wait
+	 * for them. Turning it off waits until the pending events are delivered.
+	 * 
+	 * @param async true to deliver the events asynchronously, false otherwise
+	 */
+	public void setAsyncEvents(boolean async) {
+		library.setAsync(async);
+	}
+	
+	/**
+	 * Waits until the playlists (and other listeners) were notified of every change
+	 * made to the library so far
+	 */
+	public void flushEvents() {
+		library.flush();
 	}
 	
 	/**
@@ -44,22 +115,259 @@ public class MusicLibraryController {
 	}
 
 	/**
-	 * Adds a song to the library from its file name
+	 * Adds a song to the library from its file name, if it is not in the library yet
 	 * 
 	 * @param filename the file name of the song to be added
 	 */
 	public void addSong(String filename){
+		if(!library.contains(filename)) {
+			try {
+				Optional<Song> song = readSong(filename);
+				if(song.isPresent())
+					library.add(song.get());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Adds to the library all the mp3 files in the given directory and its subdirectories
+	 * 
+	 * @param directory the directory with the songs to be added
+	 * @return the report of the import
+	 */
+	public ImportReport addSongs(Path directory) {
+		return addSongs(directory, (processed, total) -> {});
+	}
+	
+	/**
+	 * Adds to the library all the mp3 files in the given directory and its subdirectories,
+	 * reporting the progress to the given listener
+	 * 
+	 * @param directory the directory with the songs to be added
+	 * @param progress the listener of the progress of the import
+	 * @return the report of the import
+	 */
+	public ImportReport addSongs(Path directory, ImportProgressListener progress) {
+		List<Path> files;
+		
+		try {
+			files = listSongFiles(directory);
+		} catch (IOException e) {
+			ImportReport report = new ImportReport();
+			report.fileFailed(directory, e);
+			return report;
+		}
+		
+		return addSongs(files, progress);
+	}
+	
+	/**
+	 * Brings the library up to date with the mp3 files in the given directory and its
+	 * subdirectories
+	 * 
+	 * @param directory the directory with the songs
+	 * @return the report of the rescan
+	 * @see #rescan(Path, ImportProgressListener)
+	 */
+	public ImportReport rescan(Path directory) {
+		return rescan(directory, (processed, total) -> {});
+	}
+	
+	/**
+	 * Brings the library up to date with the mp3 files in the given directory and its
+	 * subdirectories. Only the tags of new files and of files whose size or modification
+	 * time changed since they were read are read. New songs are added as in addSongs,
+	 * changed songs are updated in place, keeping their rate and times played, and songs
+	 * of the directory whose files no longer exist are removed from the library.
+	 * 
+	 * @param directory the directory with the songs
+	 * @param progress the listener of the progress of the import of the new songs
+	 * @return the report of the rescan
+	 */
+	public ImportReport rescan(Path directory, ImportProgressListener progress) {
+		ImportReport report = new ImportReport();
+		List<Path> files;
+		
+		try {
+			files = listSongFiles(directory);
+		} catch (IOException e) {
+			report.fileFailed(directory, e);
+			return report;
+		}
+		
+		List<Path> newFiles = new ArrayList<>();
+		Set<Path> present = new HashSet<>();
+		for(Path file : files) {
+			present.add(file.toAbsolutePath().normalize());
+			Optional<Song> song = library.getSongByFilename(file.toString());
+			if(song.isPresent())
+				rescanSong(song.get(), file, report);
+			else
+				newFiles.add(file);
+		}
+		
+		Path root = directory.toAbsolutePath().normalize();
+		List<Song> vanished = new ArrayList<>();
+		for(Song song : library) {
+			Path file = Paths.get(song.getFilename()).toAbsolutePath().normalize();
+			if(file.startsWith(root) && !present.contains(file))
+				vanished.add(song);
+		}
+		library.removeAll(vanished);
+		for(int i = 0; i < vanished.size(); i++)
+			report.songRemoved();
+		
+		report.merge(addSongs(newFiles, progress));
+		return report;
+	}
+	
+	/**
+	 * Reads the song in the library stored in the given file again, if the file changed
+	 * since the song was read
+	 * 
+	 * @param song the song of the library
+	 * @param file the file of the song
+	 * @param report the report where the outcome is registered
+	 */
+	private void rescanSong(Song song, Path file, ImportReport report) {
 		try {
-			Mp3File mp3 = new Mp3File(filename);
-			if(mp3.hasId3v2Tag())
-				library.add(createSongId3v2(mp3.getId3v2Tag(),filename));
-			else if(mp3.hasId3v1Tag())
-				library.add(createSongId3v1(mp3.getId3v1Tag(),filename));
-		} catch (UnsupportedTagException | InvalidDataException | IOException e) {
-			e.printStackTrace();
+			Optional<Song> reread = Optional.empty();
+			if(!FileStamp.of(file).equals(song.getFileStamp()))
+				reread = readSong(file.toString());
+			
+			if(reread.isPresent()) {
+				library.update(song, reread.get());
+				report.songUpdated();
+			} else
+				report.fileSkipped();
+		} catch (IOException e) {
+			report.fileFailed(file, e);
 		}
 	}
 	
+	/**
+	 * Returns the mp3 files in the given directory and its subdirectories
+	 * 
+	 * @param directory the directory
+	 * @return the mp3 files in the directory, sorted by path
+	 * @throws IOException if the directory could not be read
+	 */
+	private List<Path> listSongFiles(Path directory) throws IOException {
+		try (Stream<Path> walk = Files.walk(directory)) {
+			return walk.filter(Files::isRegularFile)
+					   .filter(file -> file.getFileName().toString().toLowerCase().endsWith(MP3_EXTENSION))
+					   .sorted()
+					   .collect(Collectors.toList());
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * Adds the songs in the given files to the library
+	 * 
+	 * @param files the files of the songs to be added
+	 * @return the report of the import
+	 */
+	public ImportReport addSongs(Collection<Path> files) {
+		return addSongs(files, (processed, total) -> {});
+	}
+	
+	/**
+	 * Adds the songs in the given files to the library, reporting the progress to the given listener.
+	 * The tags of the files are read by a pool of worker threads and the songs are added to the
+	 * library in batches, in the order of the given files, each batch emitting a single event.
+	 * Files already in the library, repeated or without tags are skipped.
+	 * 
+	 * @param files the files of the songs to be added
+	 * @param progress the listener of the progress of the import
+	 * @return the report of the import
+	 */
+	public ImportReport addSongs(Collection<Path> files, ImportProgressListener progress) {
+		ImportReport report = new ImportReport();
+		List<Path> toRead = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		
+		for(Path file : files) {
+			if(library.contains(file.toString()) || !seen.add(MusicLibrary.filenameKey(file.toString())))
+				report.fileSkipped();
+			else
+				toRead.add(file);
+		}
+		
+		int workers = Math.min(IMPORT_WORKERS, Math.max(1, toRead.size()));
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			int processed = files.size() - toRead.size();
+			for(int start = 0; start < toRead.size() && !Thread.currentThread().isInterrupted(); start += IMPORT_BATCH_SIZE) {
+				List<Path> batch = toRead.subList(start, Math.min(start + IMPORT_BATCH_SIZE, toRead.size()));
+				library.addAll(readBatch(pool, batch, report));
+				processed += batch.size();
+				progress.importProgress(processed, files.size());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		
+		return report;
+	}
+	
+	/**
+	 * Reads the songs in the given files using the given pool
+	 * 
+	 * @param pool the pool of worker threads
+	 * @param batch the files to be read
+	 * @param report the report where skipped files and errors are registered
+	 * @return the songs read, in the order of the files
+	 */
+	private List<Song> readBatch(ExecutorService pool, List<Path> batch, ImportReport report) {
+		List<Future<Optional<Song>>> reads = new ArrayList<>();
+		List<Song> songs = new ArrayList<>();
+		
+		for(Path file : batch)
+			reads.add(pool.submit(() -> readSong(file.toString())));
+		
+		for(int i = 0; i < batch.size(); i++) {
+			try {
+				Optional<Song> song = reads.get(i).get();
+				if(song.isPresent()) {
+					songs.add(song.get());
+					report.songAdded();
+				} else
+					report.fileSkipped();
+			} catch (ExecutionException e) {
+				report.fileFailed(batch.get(i), e.getCause() instanceof Exception cause ? cause : e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				report.fileFailed(batch.get(i), e);
+			}
+		}
+		
+		return songs;
+	}
+	
+	/**
+	 * Reads the song stored in the given file. Only the tags of the file are read, and the
+	 * stamp of the file is kept in the song so later rescans can tell if the file changed.
+	 * 
+	 * @param filename the file name of the song
+	 * @return the song stored in the file, or an empty optional if the file has no tags
+	 * @throws IOException if the file could not be read
+	 */
+	private Optional<Song> readSong(String filename) throws IOException {
+		Path file = Paths.get(filename);
+		FileStamp stamp = FileStamp.of(file);
+		Optional<ID3Tag> tag = ID3TagReader.read(file);
+		Song song = null;
+		if(tag.isPresent()) {
+			song = createSong(tag.get(), filename);
+			song.setFileStamp(stamp);
+		}
+		return Optional.ofNullable(song);
+	}
+	
 	/**
 	 * Selects the song at position i in the library
 	 * 
@@ -131,49 +439,103 @@ public class MusicLibraryController {
 	 * @return a list with all songs from the library that match the given regex
 	 */
 	public Iterable<ISong> getMatches(String reexp){
-		return library.getMatches(reexp);
+		return library.getMatches(reexp, searchParallelism);
 	}
 	
 	/**
-	 * Returns an iterable structure with all songs from the library
+	 * Returns an iterable structure with the songs from the library that have the given word
+	 * in their title, album, genre or artists (ignoring case)
 	 * 
-	 * @requires size() > 0
-	 * @return a list with all songs from the library
+	 * @param term a given word
+	 * @return a list with the songs from the library that contain the given word
 	 */
-	public Iterable<ISong> getSongs() {
-		return library.getSongs();
+	public Iterable<ISong> getTermMatches(String term){
+		return library.getTermMatches(term);
 	}
 	
 	/**
-	 * Creates a song given an ID3v2 tag and its file name
+	 * Returns an iterable structure with the songs from the library that have a word starting
+	 * with the given prefix in their title, album, genre or artists (ignoring case)
 	 * 
-	 * @param id the given ID3v2 tag
-	 * @param fileName the given file name
-	 * @return the song created with the given ID3v2 tag and file name
+	 * @param prefix a given prefix
+	 * @return a list with the songs from the library that contain a word starting with the prefix
 	 */
-	private Song createSongId3v2(ID3v2 id, String fileName) {
-		String title = id.getTitle();
-		String genre = id.getGenreDescription();
-		List<String> artists = new ArrayList<>();
-		artists.add(id.getArtist());
-		String album = id.getAlbum();
-		return new Song(new SongMetaInfo(title,genre,artists,album),fileName);
+	public Iterable<ISong> getPrefixMatches(String prefix){
+		return library.getPrefixMatches(prefix);
 	}
 	
 	/**
-	 * Creates a song given an ID3v1 tag and its file name
+	 * Returns an iterable structure with the songs from the library that contain all the given words
 	 * 
-	 * @param id the given ID3v1 tag
+	 * @param terms the given words
+	 * @return a list with the songs from the library that contain every given word
+	 */
+	public Iterable<ISong> getAllTermsMatches(String... terms){
+		return library.getAllTermsMatches(terms);
+	}
+	
+	/**
+	 * Returns an iterable structure with the songs from the library that contain some of the given words
+	 * 
+	 * @param terms the given words
+	 * @return a list with the songs from the library that contain at least one of the given words
+	 */
+	public Iterable<ISong> getAnyTermMatches(String... terms){
+		return library.getAnyTermMatches(terms);
+	}
+	
+	/**
+	 * Returns a page of the songs from the library that match the given regex
+	 * 
+	 * @param reexp a given regular expression (regex)
+	 * @param offset the number of matches to skip
+	 * @param limit the maximum number of songs in the page
+	 * @requires offset >= 0 && limit >= 0
+	 * @return a list with at most limit songs from the library that match the given regex
+	 */
+	public List<ISong> getMatches(String reexp, int offset, int limit){
+		return library.getMatches(reexp, offset, limit);
+	}
+	
+	/**
+	 * Returns a lazy stream of the songs from the library that match the given regex
+	 * 
+	 * @param reexp a given regular expression (regex)
+	 * @return a stream with the songs from the library that match the given regex
+	 */
+	public Stream<ISong> streamMatches(String reexp){
+		return library.streamMatches(reexp);
+	}
+	
+	/**
+	 * Returns a lazy stream of all songs from the library
+	 * 
+	 * @return a stream with all songs from the library
+	 */
+	public Stream<ISong> streamSongs(){
+		return library.streamSongs();
+	}
+	
+	/**
+	 * Returns an iterable structure with all songs from the library
+	 * 
+	 * @requires size() > 0
+	 * @return a view with all songs from the library
+	 */
+	public Iterable<ISong> getSongs() {
+		return library.getSongs();
+	}
+	
+	/**
+	 * Creates a song given an ID3 tag and its file name
+	 * 
+	 * @param tag the given ID3 tag
 	 * @param fileName the given file name
-	 * @return the song created with the given ID3v1 tag and file name
-	 */
-	private Song createSongId3v1(ID3v1 id, String fileName) {
-		String title = id.getTitle();
-		String genre = id.getGenreDescription();
-		List<String> artists = new ArrayList<>();
-		artists.add(id.getArtist());
-		String album = id.getAlbum();
-		return new Song(new SongMetaInfo(title,genre,artists,album),fileName);
+	 * @return the song created with the given ID3 tag and file name
+	 */
+	private Song createSong(ID3Tag tag, String fileName) {
+		List<String> artists = Collections.singletonList(tag.artist());
+		return new Song(SongMetaInfo.interned(tag.title(),tag.genre(),artists,tag.album()),fileName);
 	}
 	
 	/**
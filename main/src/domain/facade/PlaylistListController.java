@@ -1,14 +1,17 @@
 package domain.facade;
 
+import java.util.Comparator;
 import java.util.Iterator;
 
 import domain.core.MusicLibrary;
 import domain.playlists.ManualPlaylist;
 import domain.playlists.Playlist;
 import domain.playlists.PlaylistList;
+import domain.playlists.RulePlaylist;
+import domain.playlists.SongRule;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * A controller that manages the interactions with the PlaylistList associated with a given library
  *
@@ -39,6 +42,33 @@ public class PlaylistListController {
 		playlists.select(playlists.size()-1);
 	}
 	
+	/**
+	 * Creates a new smart playlist with all the songs of the library that satisfy the
+	 * given rule and adds it to the playlists
+	 * 
+	 * @param name name of the new playlist
+	 * @param rule the rule satisfied by the songs of the playlist
+	 */
+	public void createSmartPlaylist(String name, SongRule rule) {
+		playlists.add(new RulePlaylist(name, library, rule));
+		playlists.select(playlists.size()-1);
+	}
+	
+	/**
+	 * Creates a new smart playlist with the first limit songs of the library that satisfy
+	 * the given rule, in the given order, and adds it to the playlists
+	 * 
+	 * @param name name of the new playlist
+	 * @param rule the rule satisfied by the songs of the playlist
+	 * @param order the order of the songs of the playlist
+	 * @param limit the maximum number of songs in the playlist
+	 * @requires limit > 0
+	 */
+	public void createSmartPlaylist(String name, SongRule rule, Comparator<ISong> order, int limit) {
+		playlists.add(new RulePlaylist(name, library, rule, order, limit));
+		playlists.select(playlists.size()-1);
+	}
+	
 	/**
 	 * Selects the playlist at position i in the playlists list
 	 * 
@@ -125,6 +155,21 @@ public class PlaylistListController {
 		return selected;
 	}
 	
+	/**
+	 * Moves the songs at the given positions of the selected playlist so they are together,
+	 * in the order they had in the playlist, starting at position to, if the playlist allows
+	 * changes of order
+	 * 
+	 * @param rows the distinct positions of the songs to move
+	 * @param to the position of the first moved song once they are moved
+	 * @requires somePlaylistSelected() && every row is a valid position of a song 
+	 * 			 && 0 <= to <= getSelectedPlaylist().size() - rows.length
+	 * @return true if the songs were moved, false otherwise
+	 */
+	public boolean moveSongs(int[] rows, int to) {
+		return getSelectedPlaylist().moveRows(rows, to);
+	}
+	
 	/**
 	 * Removes the selected song in the selected playlist in the playlists list
 	 * 
@@ -0,0 +1,60 @@
+package domain.player;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+
+import servicos.MappedFileInputStream;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * The ways the player may read the audio of a song. STREAM reads the file through a
+ * buffered stream, a few KB at a time; MAPPED maps the file in memory, so decoding
+ * does not wait for small reads on slow or remote disks.
+ *
+ */
+public enum AudioInput {
+
+	STREAM {
+		@Override
+		public InputStream open(String filename, boolean readAhead) throws IOException {
+			BufferedInputStream in = readAhead ? new BufferedInputStream(new FileInputStream(filename), READ_AHEAD)
+											   : new BufferedInputStream(new FileInputStream(filename));
+			if (readAhead) {
+				in.mark(READ_AHEAD);
+				in.readNBytes(READ_AHEAD);
+				in.reset();
+			}
+			return in;
+		}
+	},
+
+	MAPPED {
+		@Override
+		public InputStream open(String filename, boolean readAhead) throws IOException {
+			MappedFileInputStream in = new MappedFileInputStream(Paths.get(filename));
+			if (readAhead)
+				in.load();
+			return in;
+		}
+	};
+
+	/**
+	 * How many bytes of a song are read ahead by STREAM
+	 */
+	private static final int READ_AHEAD = 64 * 1024;
+
+	/**
+	 * Opens the audio of the song stored in the given file
+	 *
+	 * @param filename the file of the song
+	 * @param readAhead true to read the beginning of the song before returning
+	 * @return a stream with the audio of the song
+	 * @throws IOException if the file could not be opened
+	 */
+	public abstract InputStream open(String filename, boolean readAhead) throws IOException;
+
+}
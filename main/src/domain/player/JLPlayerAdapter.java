@@ -3,9 +3,9 @@ package domain.player;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.IOException;
 
+import javazoom.jl.decoder.JavaLayerException;
 import servicos.JLPlayer;
 
 /**
@@ -13,6 +13,14 @@ import servicos.JLPlayer;
  * @author malopes 
  * Adapter for the external mp3 player. This is a singleton class.
  * 
+ * In gapless mode (the default), the song given to prefetch is opened and its first
+ * frames are decoded while the loaded song plays. After the last frame of the loaded
+ * song, the prefetched song goes on writing to the same audio device, starting with the
+ * frames decoded ahead, before the listeners are told that the song ended; loading that
+ * song afterwards keeps it playing. Only if the samples of both songs have different
+ * formats does the prefetched song start on a device of its own, while the last frames
+ * of the loaded song are still being heard.
+ * 
  */
 public enum JLPlayerAdapter implements Player {
 
@@ -31,39 +39,172 @@ public enum JLPlayerAdapter implements Player {
 	 */	
 	private PropertyChangeSupport listenerManager = new PropertyChangeSupport(this); 
 
+	/**
+	 * How the audio of the songs is read
+	 */
+	private AudioInput input = AudioInput.STREAM;
+	
+	/**
+	 * Whether the next song is prefetched and started without a gap
+	 */
+	private boolean gapless = true;
+	
+	/**
+	 * The player of the song that starts when the loaded one ends, and its file
+	 */
+	private JLPlayer prefetched;
+	private String prefetchedFile;
+	
+	/**
+	 * The file of the prefetched song that already started playing but was not loaded yet
+	 */
+	private String startedFile;
+	
+	/**
+	 * How many frames of the prefetched song are decoded ahead
+	 */
+	private static final int PREDECODED_FRAMES = 8;
+	
+	/**
+	 * Turns the gapless mode on or off. Turning it off discards the prefetched song.
+	 * 
+	 * @param gapless true to prefetch the next song and start it without a gap
+	 */
+	public synchronized void setGapless(boolean gapless) {
+		this.gapless = gapless;
+		if (!gapless)
+			discardPrefetched();
+	}
+	
+	/**
+	 * Sets how the audio of the songs loaded from now on is read
+	 * 
+	 * @param input the way the audio is read
+	 */
+	public synchronized void setAudioInput(AudioInput input) {
+		this.input = input;
+	}
 	
 	@Override
-	public boolean load(String filename) {
+	public synchronized boolean load(String filename) {
+		if (filename.equals(startedFile)) {
+			startedFile = null;
+			return true;
+		}
+		startedFile = null;
     	try {
+    		JLPlayer next = filename.equals(prefetchedFile) ? prefetched : null;
+    		if (next != null)
+    			prefetched = null;
     		stop();
-			mp3Player = new JLPlayer(new BufferedInputStream(new FileInputStream(filename)), this);
+    		mp3Player = next != null ? next : new JLPlayer(input.open(filename, false), this);
 		} catch (Exception e) {
 			System.out.println("Somethig went wrong. Did not load song in" + filename);
 			return false;
 		} 
 		return true;
 	}
+	
+	@Override
+	public synchronized boolean prefetch(String filename) {
+		if (!gapless)
+			return false;
+		if (filename.equals(prefetchedFile))
+			return true;
+		
+		discardPrefetched();
+		try {
+			prefetched = open(filename);
+			prefetchedFile = filename;
+			if (mp3Player != null)
+				mp3Player.setNext(prefetched);
+		} catch (Exception e) {
+			System.out.println("Somethig went wrong. Did not prefetch song in" + filename);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Opens the song in the file and decodes its first frames ahead
+	 * 
+	 * @param filename the file of the song
+	 * @return a player of the song that did not start yet
+	 * @throws IOException if the file could not be read
+	 * @throws JavaLayerException if the first frames could not be decoded
+	 */
+	private JLPlayer open(String filename) throws IOException, JavaLayerException {
+		JLPlayer player = new JLPlayer(input.open(filename, true), this);
+		try {
+			player.predecode(PREDECODED_FRAMES);
+		} catch (JavaLayerException e) {
+			player.stop();
+			throw e;
+		}
+		return player;
+	}
+	
+	/**
+	 * Discards the prefetched song, if any
+	 */
+	private void discardPrefetched() {
+		if (mp3Player != null)
+			mp3Player.setNext(null);
+		if (prefetched != null)
+			prefetched.stop();
+		prefetched = null;
+		prefetchedFile = null;
+	}
 
+	/**
+	 * Returns the number of songs being decoded at the moment. Songs are decoded by
+	 * a pool of threads shared by every player, so skipping through songs does not
+	 * leave threads behind.
+	 * 
+	 * @return the number of active decoders
+	 */
+	public int activeDecoders() {
+		return JLPlayer.activeDecoders();
+	}
+	
 	@Override
-	public void play() {
+	public synchronized void play() {
 		if (mp3Player != null)
 			mp3Player.play();
 	}
 
 	@Override
-	public void still() {
+	public synchronized void still() {
 		if (mp3Player != null)
 			mp3Player.still();
 	}
 
+	/**
+	 * Stops the music that is currently playing and discards the prefetched song
+	 */
 	@Override
-	public void stop() {
+	public synchronized void stop() {
+		startedFile = null;
+		discardPrefetched();
 		if (mp3Player != null)
 			mp3Player.stop();
 	}
 
+	/**
+	 * Plays the prefetched song, if any, and notifies listeners that playing song ended.
+	 * If the prefetched song took over the audio device, it is already playing.
+	 */
 	@Override
 	public void hasEndedSong() {
+		synchronized (this) {
+			if (prefetched != null) {
+				mp3Player = prefetched;
+				startedFile = prefetchedFile;
+				prefetched = null;
+				prefetchedFile = null;
+				mp3Player.play();
+			}
+		}
 		PropertyChangeEvent event = new PropertyChangeEvent(this, "playingState", Player.PlayingState.ON, Player.PlayingState.ENDED);
 		listenerManager.firePropertyChange(event);
 	}
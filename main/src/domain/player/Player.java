@@ -36,6 +36,18 @@ public interface Player extends PropertyObservable{
      */
     public void stop ();
     
+    /**
+     * Prepares the digital song stored in the file with the filename to be played
+     * as soon as the loaded song ends, without a gap between them. Players that
+     * cannot do it ignore the call.
+     * @param filename
+     * @return if the song will be played right after the loaded song
+     * @requires filename has a readable music file
+     */
+    public default boolean prefetch (String filename) {
+    	return false;
+    }
+    
     /**
      * Notifies listeners that playing song was stopped  
      */
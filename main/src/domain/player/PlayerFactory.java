@@ -1,23 +1,113 @@
 package domain.player;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
 /**
  * @author antonialopes
  * A factory that provides the player that can be used for playing digital songs
+ * 
+ * Players are registered by name and only created when first needed, so choosing
+ * the simulated player keeps the audio stack untouched. Each player is created once
+ * and kept, so switching between players does not create new ones. The mp3 player
+ * (JLPLAYER) is used unless another one is chosen.
  */
 public enum PlayerFactory {
 	
 	INSTANCE;
 	
-	private Player player;
+	public static final String JLPLAYER = "jlplayer";
+	public static final String SIMULATED = "simulated";
+	
+	private Map<String, Supplier<? extends Player>> players;
+	private Map<String, Player> created;
+	private String chosen;
+	private AudioInput audioInput;
 	
 	/**
 	 * @return the player that can be used for playing digital songs
 	 */
-	public Player getPlayer(){	
-		return INSTANCE.player;
+	public synchronized Player getPlayer(){	
+		Player player = created.get(chosen);
+		if (player == null) {
+			player = players.get(chosen).get();
+			if (player instanceof JLPlayerAdapter adapter)
+				adapter.setAudioInput(audioInput);
+			created.put(chosen, player);
+		}
+		return player;
+	}
+	
+	/**
+	 * Registers a player with the given name, replacing the one registered with the
+	 * same name, if any. The player is only created when it is first needed. A simulated
+	 * player already created for the name is shut down, since it is not given any more.
+	 * @param name the name of the player
+	 * @param supplier creates the player
+	 * @requires name != null && supplier != null
+	 */
+	public synchronized void registerPlayer(String name, Supplier<? extends Player> supplier) {
+		players.put(name, supplier);
+		Player replaced = created.remove(name);
+		if (replaced instanceof SimulatedPlayer simulated)
+			simulated.shutdown();
+	}
+	
+	/**
+	 * Chooses the player given by getPlayer from now on. Libraries created before keep
+	 * the player they had.
+	 * @param name the name of a registered player
+	 * @return if there is a player registered with the name
+	 */
+	public synchronized boolean usePlayer(String name) {
+		boolean registered = players.containsKey(name);
+		if (registered)
+			chosen = name;
+		return registered;
+	}
+	
+	/**
+	 * @return the name of the chosen player
+	 */
+	public synchronized String getPlayerName() {
+		return chosen;
+	}
+	
+	/**
+	 * @return the names of the registered players
+	 */
+	public synchronized Set<String> getPlayerNames() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(players.keySet()));
+	}
+	
+	/**
+	 * Sets how the player reads the audio of the songs it loads
+	 * @param input the way the audio is read (STREAM by default)
+	 */
+	public synchronized void setAudioInput(AudioInput input) {
+		audioInput = input;
+		for (Player player : created.values())
+			if (player instanceof JLPlayerAdapter adapter)
+				adapter.setAudioInput(input);
+	}
+	
+	/**
+	 * @return how the player reads the audio of the songs it loads
+	 */
+	public synchronized AudioInput getAudioInput() {
+		return audioInput;
 	}
 	
 	private PlayerFactory() {
-		player = JLPlayerAdapter.INSTANCE;
+		players = new LinkedHashMap<>();
+		players.put(JLPLAYER, () -> JLPlayerAdapter.INSTANCE);
+		players.put(SIMULATED, SimulatedPlayer::new);
+		created = new LinkedHashMap<>();
+		chosen = JLPLAYER;
+		audioInput = AudioInput.STREAM;
 	}
 }
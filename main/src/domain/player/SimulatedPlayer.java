@@ -0,0 +1,233 @@
+package domain.player;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A player that plays no audio. Every song lasts the same (simulated) time and the
+ * simulated clock runs at a given speed, so a song of 3 minutes played at speed 60
+ * ends after 3 seconds. As with the real player, the listeners are notified that a
+ * song ended or was stopped by another thread, the one of the simulated clock.
+ * 
+ * It is meant for tests and for load tests of the playlists, where millions of songs
+ * may be played without audio hardware (with an infinite speed, songs end at once).
+ *
+ */
+public class SimulatedPlayer implements Player {
+
+	public static final long DEFAULT_TRACK_LENGTH = 3 * 60 * 1000;
+	public static final double DEFAULT_SPEED = 1.0;
+
+	private final PropertyChangeSupport listenerManager;
+	private final ScheduledThreadPoolExecutor clock;
+	private final AtomicLong songsEnded;
+	private final AtomicLong songsStopped;
+	private long trackLength;
+	private double speed;
+	private String loaded;
+	private boolean started;
+	private boolean playing;
+	private long remaining;
+	private long resumedAt;
+	private Future<?> ending;
+	private long generation;
+
+	/**
+	 * Creates a simulated player whose songs last the default time, played at
+	 * the speed of the real clock
+	 */
+	public SimulatedPlayer() {
+		this(DEFAULT_TRACK_LENGTH, DEFAULT_SPEED);
+	}
+
+	/**
+	 * Creates a simulated player whose songs last the given time, played at the
+	 * given speed
+	 *
+	 * @param trackLength the length of every song, in simulated milliseconds
+	 * @param speed how many simulated milliseconds pass in a real millisecond
+	 * @requires trackLength >= 0 && speed > 0
+	 */
+	public SimulatedPlayer(long trackLength, double speed) {
+		this.listenerManager = new PropertyChangeSupport(this);
+		this.clock = new ScheduledThreadPoolExecutor(1, task -> {
+			Thread thread = new Thread(task, "simulated-player");
+			thread.setDaemon(true);
+			return thread;
+		});
+		clock.setRemoveOnCancelPolicy(true);
+		this.songsEnded = new AtomicLong();
+		this.songsStopped = new AtomicLong();
+		this.trackLength = trackLength;
+		this.speed = speed;
+		this.loaded = null;
+		this.started = false;
+		this.playing = false;
+		this.ending = null;
+		this.generation = 0;
+	}
+
+	/**
+	 * Sets the length of the songs loaded from now on
+	 *
+	 * @param trackLength the length of every song, in simulated milliseconds
+	 * @requires trackLength >= 0
+	 */
+	public synchronized void setTrackLength(long trackLength) {
+		this.trackLength = trackLength;
+	}
+
+	/**
+	 * Sets the speed of the simulated clock. The song that is playing, if any,
+	 * goes on at the new speed.
+	 *
+	 * @param speed how many simulated milliseconds pass in a real millisecond
+	 * @requires speed > 0
+	 */
+	public synchronized void setSpeed(double speed) {
+		boolean wasPlaying = playing;
+		if (wasPlaying)
+			pause();
+		this.speed = speed;
+		if (wasPlaying)
+			resume();
+	}
+
+	/**
+	 * Returns how many songs were played until the end
+	 *
+	 * @return the number of songs that ended
+	 */
+	public long getSongsEnded() {
+		return songsEnded.get();
+	}
+
+	/**
+	 * Returns how many songs were stopped before the end
+	 *
+	 * @return the number of songs that were stopped
+	 */
+	public long getSongsStopped() {
+		return songsStopped.get();
+	}
+
+	/**
+	 * Stops the song that is playing, if any, and the thread of the simulated clock.
+	 * The player does not play songs afterwards.
+	 */
+	public void shutdown() {
+		stop();
+		clock.shutdown();
+	}
+
+	@Override
+	public synchronized boolean load(String filename) {
+		stop();
+		loaded = filename;
+		started = false;
+		remaining = trackLength;
+		return true;
+	}
+
+	@Override
+	public synchronized void play() {
+		if (loaded != null && !playing && !clock.isShutdown()) {
+			started = true;
+			resume();
+		}
+	}
+
+	@Override
+	public synchronized void still() {
+		if (playing)
+			pause();
+	}
+
+	/**
+	 * Stops the song that is currently playing or paused. If it was played, the
+	 * listeners are notified by the thread of the simulated clock.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (started) {
+			if (playing)
+				pause();
+			started = false;
+			loaded = null;
+			clock.execute(this::hasStopedSong);
+		}
+	}
+
+	/**
+	 * Starts the simulated clock of the loaded song, scheduling its end
+	 */
+	private void resume() {
+		long song = ++generation;
+		playing = true;
+		resumedAt = System.nanoTime();
+		long delay = (long) (remaining * TimeUnit.MILLISECONDS.toNanos(1) / speed);
+		ending = clock.schedule(() -> end(song), delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops the simulated clock of the loaded song, keeping the time it has left
+	 */
+	private void pause() {
+		ending.cancel(false);
+		generation++;
+		playing = false;
+		double elapsed = (System.nanoTime() - resumedAt) * speed / TimeUnit.MILLISECONDS.toNanos(1);
+		remaining = Math.max(0, remaining - (long) elapsed);
+	}
+
+	/**
+	 * Ends the loaded song, if it is still the one scheduled to end
+	 *
+	 * @param song the generation of the scheduled end
+	 */
+	private void end(long song) {
+		boolean ended = false;
+		synchronized (this) {
+			if (song == generation && playing) {
+				playing = false;
+				started = false;
+				loaded = null;
+				ended = true;
+			}
+		}
+		if (ended)
+			hasEndedSong();
+	}
+
+	@Override
+	public void hasEndedSong() {
+		songsEnded.incrementAndGet();
+		PropertyChangeEvent event = new PropertyChangeEvent(this, "playingState", Player.PlayingState.ON, Player.PlayingState.ENDED);
+		listenerManager.firePropertyChange(event);
+	}
+
+	@Override
+	public void hasStopedSong() {
+		songsStopped.incrementAndGet();
+		PropertyChangeEvent event = new PropertyChangeEvent(this, "playingState", Player.PlayingState.ON, Player.PlayingState.STOPED);
+		listenerManager.firePropertyChange(event);
+	}
+
+	@Override
+	public void addListener(PropertyChangeListener listener) {
+		listenerManager.addPropertyChangeListener(listener);
+	}
+
+	@Override
+	public void removeListener(PropertyChangeListener listener) {
+		listenerManager.removePropertyChangeListener(listener);
+	}
+
+}
@@ -1,18 +1,26 @@
 package domain.playlists;
 
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import domain.core.MusicLibrary;
 import domain.core.Song;
 import domain.core.SongLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
 import domain.facade.ISong;
 import domain.player.Player;
 import util.adts.ArrayQListWithSelection;
 import util.adts.QListWithSelection;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * Playlists have a name and consist of a list of distinct musics from a music library.
  * 
@@ -26,13 +34,28 @@ import util.adts.QListWithSelection;
  * playlist may be playing (i.e. the play action was performed via the playlist). 
  * A playlist keeps track that a song was played (until the end) through the playlist.
  *
+ * Besides the list of songs, a playlist keeps the set of its songs, so checking if a
+ * song is in the playlist takes constant time, and a map from each song to its position,
+ * built the first time a position is needed. Removing or moving songs only updates the
+ * positions of the songs that shift.
+ *
+ * A playlist only hears the removal of the songs it contains and the events of the
+ * types it subscribes to, instead of every event of the library.
+ *
+ * The events of the library may be delivered by another thread (see MusicLibrary.setAsync),
+ * so the songs of a playlist are guarded by the playlist's own lock and are iterated over
+ * a copy. The player and the library are called without holding the lock, so a thread
+ * that waits for them never waits for the playlist as well.
+ *
  */
 public abstract class AbsPlaylist implements Playlist {
 	
 	private String name;
 	private MusicLibrary library;
 	private QListWithSelection<ISong> playlist;
-	private ISong playing;
+	private Set<ISong> members;
+	private Map<ISong, Integer> positions;
+	private volatile ISong playing;
 	private Player player;
 	
 	/**
@@ -42,15 +65,39 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @param library the library associated to the playlist
 	 */
 	protected AbsPlaylist(String name, MusicLibrary library) {
+		this(name, library, new ArrayQListWithSelection<>());
+	}
+	
+	/**
+	 * Creates playlist with the given name and library, keeping its songs in the given list
+	 * 
+	 * @param name the playlist's name
+	 * @param library the library associated to the playlist
+	 * @param playlist the empty list where the songs of the playlist are kept
+	 * @requires playlist.size() == 0
+	 */
+	protected AbsPlaylist(String name, MusicLibrary library, QListWithSelection<ISong> playlist) {
 		this.name = name;
 		this.library = library;
-		this.playlist = new ArrayQListWithSelection<>();
+		this.playlist = playlist;
+		this.members = new HashSet<>();
+		this.positions = null;
 		playing = null;
 		
 		player = library.getPlayer();
 		player.addListener(this);
 		
-		library.registerListener(this);
+	}
+	
+	/**
+	 * Subscribes the playlist to the library events of the given type. Every playlist
+	 * hears the removal of its own songs; other events are only heard if the playlist
+	 * subscribes to them.
+	 * 
+	 * @param type the type of the events
+	 */
+	protected void subscribe(Class<? extends SongLibraryEvent> type) {
+		library.registerListener(type, this);
 	}
 	
 	/**
@@ -60,7 +107,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @ensures \return >= 0
 	 */
 	@Override
-	public int size() {
+	public synchronized int size() {
 		return playlist.size();
 	}
 	
@@ -72,7 +119,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @ensures \return != null
 	 */
 	@Override
-	public ISong getSelected() {
+	public synchronized ISong getSelected() {
 		return playlist.getSelected();
 	}
 	
@@ -82,7 +129,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @return true if some element is selected, false otherwise
 	 */
 	@Override
-	public boolean someSelected() {
+	public synchronized boolean someSelected() {
 		return playlist.someSelected();
 	}
 	
@@ -99,11 +146,15 @@ public abstract class AbsPlaylist implements Playlist {
 	 * 						getIndexSelected() == size() - 1
 	 */
 	@Override
-	public boolean add(ISong song) {
+	public synchronized boolean add(ISong song) {
 		int ogSize = playlist.size();
 		if(song instanceof Song s && !inPlaylist(song)) {
 			playlist.add(s);
-				playlist.select(playlist.size()-1);
+			members.add(s);
+			library.registerListener(SongRemovedLibraryEvent.class, s, this);
+			if(positions != null)
+				positions.put(s, playlist.size()-1);
+			playlist.select(playlist.size()-1);
 		}
 		return playlist.size() == ogSize+1 && playlist.someSelected() && playlist.getIndexSelected() == playlist.size()-1;
 	}
@@ -118,11 +169,30 @@ public abstract class AbsPlaylist implements Playlist {
 	 * 							&& size() == \old(size()) 
 	 */
 	@Override
-	public boolean remove() {
+	public synchronized boolean remove() {
+		return removeSelected();
+	}
+	
+	/**
+	 * Removes the selected element from the playlist, if possible. Unlike remove, it
+	 * is not overridden by the subclasses, so it always removes the selected song.
+	 *
+	 * @return true if the song was removed, false otherwise
+	 */
+	private synchronized boolean removeSelected() {
 		boolean wasRemoved = false;
 		
 		if (someSelected()) {
+			ISong selected = playlist.getSelected();
+			members.remove(selected);
+			if(selected instanceof Song s)
+				library.unregisterListener(SongRemovedLibraryEvent.class, s, this);
+			int index = playlist.getIndexSelected();
 			playlist.remove();
+			if(positions != null) {
+				positions.remove(selected);
+				reindex(index, playlist.size() - 1);
+			}
 			
 			if (!someSelected())
 				wasRemoved = true;
@@ -139,7 +209,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * 								size() == \old(size()) 
 	 */
 	@Override
-	public void select(int i) {
+	public synchronized void select(int i) {
 		playlist.select(i);
 	}
 	
@@ -156,23 +226,56 @@ public abstract class AbsPlaylist implements Playlist {
 	 * 					size() == \old(size()) 
 	 */
 	@Override
-	public boolean moveUpSelected(int i) {
-		QListWithSelection<ISong> newPlaylist = new ArrayQListWithSelection<>();
+	public synchronized boolean moveUpSelected(int i) {
 		ISong selected = playlist.getSelected();
-		playlist.remove();
+		move(playlist.getIndexSelected(), i);
 		
-		int j = 0;
-		for(ISong s : playlist) {
-			if(j==i)
-				newPlaylist.add(selected);
-			newPlaylist.add(s);
-			j++;
-		}
+		return playlist.getIndexSelected() == i && playlist.getSelected().equals(selected);
+	}
+	
+	/**
+	 * Moves the song at position from to position to, shifting the songs 
+	 * in between by one position. The selected song stays selected.
+	 * 
+	 * @param from the position of the song to move
+	 * @param to the new position of the song
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 * @return true
+	 * @ensures size() == \old(size())
+	 */
+	@Override
+	public synchronized boolean move(int from, int to) {
+		playlist.move(from, to);
+		reindex(Math.min(from, to), Math.max(from, to));
+		return true;
+	}
+	
+	/**
+	 * Moves the songs at the given positions so they are together, in the order
+	 * they had in the playlist, starting at position to. The songs are first moved,
+	 * in order, to the end of the playlist and then, in order, to their new places.
+	 * The selected song stays selected.
+	 * 
+	 * @param rows the distinct positions of the songs to move
+	 * @param to the position of the first moved song once they are moved
+	 * @requires every row is in 0..size()-1 && 0 <= to <= size() - rows.length
+	 * @return true
+	 * @ensures size() == \old(size())
+	 */
+	@Override
+	public synchronized boolean moveRows(int[] rows, int to) {
+		int[] sorted = rows.clone();
+		Arrays.sort(sorted);
+		int last = playlist.size() - 1;
 		
-		newPlaylist.select(i);
-		playlist = newPlaylist;
+		for(int j = 0; j < sorted.length; j++)
+			playlist.move(sorted[j] - j, last);
+		for(int j = 0; j < sorted.length; j++)
+			playlist.move(last - sorted.length + 1 + j, to + j);
 		
-		return playlist.getIndexSelected() == i && playlist.getSelected().equals(selected); // nao tenho a certeza
+		if(sorted.length > 0)
+			reindex(Math.min(sorted[0], to), last);
+		return true;
 	}
 	
 	/**
@@ -183,7 +286,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @ensures 0 <= \return < size()
 	 */
 	@Override
-	public int getIndexSelected() {
+	public synchronized int getIndexSelected() {
 		return playlist.getIndexSelected();
 	}
 	
@@ -197,7 +300,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @ensures size() == \old(size()) 
 	 */
 	@Override
-	public void next() {
+	public synchronized void next() {
 		if (getIndexSelected() < size() - 1)
 			playlist.next();
 		else
@@ -214,7 +317,7 @@ public abstract class AbsPlaylist implements Playlist {
 	 * @ensures size() == \old(size()) 
 	 */
 	@Override
-	public void previous() {
+	public synchronized void previous() {
 		if (getIndexSelected() > 0)
 			playlist.previous();
 		else
@@ -253,9 +356,29 @@ public abstract class AbsPlaylist implements Playlist {
 	public void play() {
 		if(isPlaying())
 			stop();
-		playing = playlist.getSelected();
-		player.load(playing.getFilename());
+		ISong selected;
+		ISong following;
+		synchronized(this) {
+			selected = playlist.getSelected();
+			following = songAfterSelected();
+			playing = selected;
+		}
+		player.load(selected.getFilename());
 		player.play();
+		// the player prepares the next song, so it starts without a gap when this one ends
+		if(following != null)
+			player.prefetch(following.getFilename());
+	}
+	
+	/**
+	 * Returns the song after the selected one, if any
+	 * 
+	 * @return the song after the selected one, or null if the selected song is the last
+	 * @requires someSelected()
+	 */
+	private ISong songAfterSelected() {
+		int next = playlist.getIndexSelected() + 1;
+		return next < playlist.size() ? playlist.get(next) : null;
 	}
 	
 	/**
@@ -275,7 +398,13 @@ public abstract class AbsPlaylist implements Playlist {
 	 */
 	@Override
 	public Iterator<ISong> iterator() {
-		return playlist.iterator();
+		List<ISong> copy;
+		synchronized(this) {
+			copy = new ArrayList<>(playlist.size());
+			for(ISong song : playlist)
+				copy.add(song);
+		}
+		return copy.iterator();
 	}
 	
 	/**
@@ -286,9 +415,15 @@ public abstract class AbsPlaylist implements Playlist {
 	public void propertyChange(PropertyChangeEvent evt) {
 		if(isPlaying()) {
 			if(evt.getNewValue().equals(Player.PlayingState.ENDED)){
-				playing.incTimesPlayed();
-				next();
-				if(someSelected())
+				library.incTimesPlayed(playing);
+				boolean more;
+				synchronized(this) {
+					// the song ended, so it is not stopped (the next one may already be playing)
+					playing = null;
+					next();
+					more = someSelected();
+				}
+				if(more)
 					play();
 				else
 					stop();
@@ -298,41 +433,64 @@ public abstract class AbsPlaylist implements Playlist {
 	}
 	
 	/**
-	 * Processes the SongRemovedLibraryEvent
+	 * Processes the SongRemovedLibraryEvent, removing the song from the playlist if it
+	 * is there. The selected song stays selected if it is not the one removed.
 	 * 
 	 * @param e the event received
 	 */
-	public void processRemoved(SongLibraryEvent e) {
+	public synchronized void processRemoved(SongLibraryEvent e) {
 		Song removed = e.getModifiedSong();
-		boolean removedInPlaylist = false;
-		int index = 0;
-		Iterator<ISong> it = iterator();
 		
-		while(it.hasNext() && !removedInPlaylist) {
-			if(it.next().equals(removed)) {
-				removedInPlaylist = true;
-				index++;
-			}
-		}
-		
-		if(removedInPlaylist) {
+		if(inPlaylist(removed)) {
+			int index = positionOf(removed);
 			int ogSelected = getIndexSelected();
 			if(ogSelected != index) {
 				select(index);
-				remove();
-				select(ogSelected);
+				removeSelected();
+				select(ogSelected > index ? ogSelected - 1 : ogSelected);
 			} else
-				remove();
+				removeSelected();
 		}
 	}
 	
+	/**
+	 * Returns the position of the song in the playlist, building the map of positions
+	 * the first time a position is needed
+	 * 
+	 * @param s the song
+	 * @requires inPlaylist(s)
+	 * @return the position of the song in the playlist
+	 */
+	protected synchronized int positionOf(ISong s) {
+		if(positions == null) {
+			positions = new HashMap<>();
+			int i = 0;
+			for(ISong song : playlist)
+				positions.put(song, i++);
+		}
+		return positions.get(s);
+	}
+	
+	/**
+	 * Updates the positions of the songs between the given positions, if the map of
+	 * positions was built
+	 * 
+	 * @param first the first position updated
+	 * @param last the last position updated
+	 */
+	private void reindex(int first, int last) {
+		if(positions != null)
+			for(int i = first; i <= last; i++)
+				positions.put(playlist.get(i), i);
+	}
+	
 	/**
 	 * Returns a textual representation of the playlist
 	 * 
 	 * @return textual representation of the playlist
 	 */
 	@Override
-	public String toString() {
+	public synchronized String toString() {
 		StringBuilder sb = new StringBuilder("*-- Playlist ");
 		int i = 0;
 		
@@ -350,14 +508,14 @@ public abstract class AbsPlaylist implements Playlist {
 		return sb.toString();
 	}
 	
-	public boolean inPlaylist(ISong s) {
-		boolean in = false;
-		Iterator<ISong> it = iterator();
-		
-		while(it.hasNext() && !in)
-			in |= it.next().equals(s);
-		
-		return in;
+	/**
+	 * Checks if the song is in the playlist
+	 * 
+	 * @param s the song
+	 * @return true if the song is in the playlist, false otherwise
+	 */
+	public synchronized boolean inPlaylist(ISong s) {
+		return members.contains(s);
 	}
 	
 }
@@ -5,7 +5,7 @@ import domain.core.SongLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * ManualPlaylist is a playlist that is created manually and implements all the features
  * of a normal playlist.
@@ -29,7 +29,7 @@ public class ManualPlaylist extends AbsPlaylist {
 	 * In this playlist, the processed events are SongRemovedLibraryEvent.
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		if(e instanceof SongRemovedLibraryEvent)
 			super.processRemoved(e);
 	}
@@ -1,103 +1,192 @@
 package domain.playlists;
 
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
 import domain.core.MusicLibrary;
 import domain.core.Rate;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRatedLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.IndexedMinHeap;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
- * MostLikedSongsPlaylist is a type of SmartPlaylist that contains the most liked songs 
+ * MostLikedSongsPlaylist is a type of SmartPlaylist that contains the most liked songs
  * in the music library associated to it.
  *
+ * The songs are ranked by their rate, as it was when their rating was processed, and,
+ * between songs with the same rate, the most recently rated song is ranked first. The songs in the playlist are kept in a min-heap,
+ * so the lowest ranked one is found without going through the playlist, and the rated
+ * songs that are not in the playlist are kept in a max-heap, so the best of them takes
+ * the place of a song of the playlist that is rated down or removed.
+ *
  */
 public class MostLikedSongsPlaylist extends SmartPlaylist {
-	
-	private static final int N = 5; // a definir
-	
+
+	public static final int DEFAULT_N = 5;
+
+	private int n;
+	private long ratings;
+	private Map<ISong, Rank> ranks;
+	private Comparator<ISong> ranking;
+	private IndexedMinHeap<ISong> members;
+	private IndexedMinHeap<ISong> candidates;
+
 	/**
-	 * Creates MostLikedSongsPlaylist for the given library
-	 * 
+	 * Creates MostLikedSongsPlaylist for the given library, with the DEFAULT_N most liked songs
+	 *
 	 * @param library the given library
 	 */
 	public MostLikedSongsPlaylist(MusicLibrary library) {
+		this(library, DEFAULT_N);
+	}
+
+	/**
+	 * Creates MostLikedSongsPlaylist for the given library, with the n most liked songs
+	 *
+	 * @param library the given library
+	 * @param n the maximum number of songs in the playlist
+	 * @requires n > 0
+	 */
+	public MostLikedSongsPlaylist(MusicLibrary library, int n) {
 		super("Most Liked", library);
+		this.n = n;
+		ratings = 0;
+		ranks = new HashMap<>();
+		ranking = Comparator.comparing(ranks::get);
+		members = new IndexedMinHeap<>(ranking);
+		candidates = new IndexedMinHeap<>(ranking.reversed());
+		subscribe(SongRatedLibraryEvent.class);
+		subscribe(SongRemovedLibraryEvent.class);
 	}
-	
+
 	/**
-	 * Adds a song to the end of the playlist, if it
-	 * does not exist yet and selects it,
-	 * if addition is possible
+	 * Returns the maximum number of songs in the playlist
 	 *
-	 * @param song the element to be added
-	 * @requires song != null 
-	 * @return true if the song was added to the playlist, false otherwise
-	 * @ensures \result ==> size() == \old(size()) + 1 &&
-	 * 						someSelected() && 
-	 * 						getIndexSelected() == size() - 1
+	 * @return the maximum number of songs in the playlist
+	 */
+	public int getN() {
+		return n;
+	}
+
+	/**
+	 * Ranks a song that was rated, adding it to the playlist if it is one of the n most
+	 * liked songs, and removing the lowest ranked song if the playlist is full
+	 *
+	 * @param song the song that was rated
+	 * @requires song != null
+	 * @return true if the song is in the playlist, false otherwise
+	 * @ensures \result ==> size() <= getN()
 	 */
 	@Override
-	public boolean add(ISong song) {
-		while(super.size() >= N)
-			remove();
-		addAutomatic(song);
-		return super.size() <= N && super.getIndexSelected() == size() - 1 && super.getSelected().equals(song);
+	public synchronized boolean add(ISong song) {
+		ranks.put(song, new Rank(song.getRating(), ++ratings));
+		if(members.contains(song))
+			members.update(song);
+		else if(candidates.contains(song))
+			candidates.update(song);
+		else
+			candidates.add(song);
+
+		rebalance();
+		return members.contains(song);
 	}
-	
+
 	/**
-	 * Removes the selected element from the playlist, if possible
+	 * Removes the lowest ranked song from the playlist, if any
 	 *
-	 * @return true if the song was removed, false otherwise
-	 * @ensures \return && \old someSelected()  ==> 
-	 * 					!someSelected() && size() == \old(size()) - 1
-	 * @ensures !\return ==> \old someSelected() == someSelected()
-	 * 							&& size() == \old(size()) 
+	 * @return true if a song was removed, false otherwise
+	 * @ensures \return ==> size() == \old(size()) - 1
+	 * @ensures !\return ==> size() == \old(size())
 	 */
 	@Override
-	public boolean remove() {
-		super.removeAutomatic(getLowestRatedIndex());
-		return !super.someSelected();
+	public synchronized boolean remove() {
+		boolean wasRemoved = members.size() > 0;
+		if(wasRemoved) {
+			ISong lowest = members.poll();
+			ranks.remove(lowest);
+			removeMember(lowest);
+		}
+		return wasRemoved;
+	}
+
+	/**
+	 * Fills the playlist with the best ranked songs that are not in it and swaps the
+	 * lowest ranked song of the playlist with the best ranked song out of it while the
+	 * latter is ranked higher
+	 */
+	private void rebalance() {
+		while(members.size() < n && candidates.size() > 0) {
+			ISong best = candidates.poll();
+			members.add(best);
+			addAutomatic(best);
+		}
+
+		while(candidates.size() > 0 && ranking.compare(candidates.peek(), members.peek()) > 0) {
+			ISong lowest = members.poll();
+			ISong best = candidates.poll();
+			removeMember(lowest);
+			candidates.add(lowest);
+			members.add(best);
+			addAutomatic(best);
+		}
+	}
+
+	/**
+	 * Removes the given song from the backing playlist
+	 *
+	 * @param song a song of the playlist
+	 */
+	private void removeMember(ISong song) {
+		super.removeAutomatic(positionOf(song));
 	}
-	
+
 	/**
-	 * Gets the index of the lowest rated song in this playlist
-	 * 
-	 * @return index of the lowest rated song in this playlist
+	 * Takes a song that was removed from the library out of the ranking and, if it was
+	 * in the playlist, gives its place to the best ranked song out of the playlist
+	 *
+	 * @param song the song removed from the library
 	 */
-	private int getLowestRatedIndex() {
-		Rate lowestRate = new Rate();
-		Iterator<ISong> it = super.iterator();
-		int index = 0;
-		int i = 0;
-		
-		while(it.hasNext()) {
-			Rate currentRate = it.next().getRating();
-			if(currentRate.compareTo(lowestRate) <= 0) {
-				lowestRate = currentRate;
-				index = i;
-			}
-			i++;
+	private void removed(ISong song) {
+		candidates.remove(song);
+		if(members.remove(song)) {
+			removeMember(song);
+			rebalance();
 		}
-		
-		return index;
+		ranks.remove(song);
 	}
-	
+
 	/**
-	 * Reaction to events, namely those emitted by the music library that 
+	 * Reaction to events, namely those emitted by the music library that
 	 * backs up this playlist (can affect the content of the playlist).
 	 * In this playlist, the processed events are SongRatedLibraryEvent
 	 * and SongRemovedLibraryEvent.
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		if(e instanceof SongRatedLibraryEvent)
 			add(e.getModifiedSong());
 		else if(e instanceof SongRemovedLibraryEvent)
-			super.processRemoved(e);
+			removed(e.getModifiedSong());
 	}
-	
+
+	/**
+	 * The rank of a song: the rate it had when its rating was processed and the order
+	 * of that rating. The rate is kept, rather than read from the song, so a rating not
+	 * processed yet does not change the order of the heaps behind their back.
+	 */
+	private record Rank(Rate rate, long order) implements Comparable<Rank> {
+
+		@Override
+		public int compareTo(Rank o) {
+			int result = rate.compareTo(o.rate);
+			return result != 0 ? result : Long.compare(order, o.order);
+		}
+
+	}
+
 }
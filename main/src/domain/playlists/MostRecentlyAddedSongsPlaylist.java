@@ -1,13 +1,18 @@
 package domain.playlists;
 
+import java.util.List;
+
 import domain.core.MusicLibrary;
+import domain.core.Song;
 import domain.core.SongAddedLibraryEvent;
+import domain.core.SongBatchAddedLibraryEvent;
 import domain.core.SongLibraryEvent;
 import domain.core.SongRemovedLibraryEvent;
 import domain.facade.ISong;
+import util.adts.RingQListWithSelection;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * MostRecentlyAddedSongsPlaylist is a type of SmartPlaylist that contains the most recently
  * added songs in the music library associated to it.
@@ -15,21 +20,50 @@ import domain.facade.ISong;
  */
 public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
 	
-	private static final int N = 5;
+	public static final int DEFAULT_N = 5;
+	
+	private int n;
 	
 	/**
-	 * Creates MostRecentlyAddedSongsPlaylist for the given library
+	 * Creates MostRecentlyAddedSongsPlaylist for the given library, with the DEFAULT_N
+	 * most recently added songs
 	 * 
 	 * @param library the given library
 	 */
 	public MostRecentlyAddedSongsPlaylist(MusicLibrary library) {
-		super("Most Recently Added", library);
+		this(library, DEFAULT_N);
+	}
+	
+	/**
+	 * Creates MostRecentlyAddedSongsPlaylist for the given library, with the n most
+	 * recently added songs. The songs are kept in a circular buffer with capacity n,
+	 * so the oldest song is discarded in constant time.
+	 * 
+	 * @param library the given library
+	 * @param n the maximum number of songs in the playlist
+	 * @requires n > 0
+	 */
+	public MostRecentlyAddedSongsPlaylist(MusicLibrary library, int n) {
+		super("Most Recently Added", library, new RingQListWithSelection<>(n));
+		this.n = n;
+		subscribe(SongAddedLibraryEvent.class);
+		subscribe(SongBatchAddedLibraryEvent.class);
+	}
+	
+	/**
+	 * Returns the maximum number of songs in the playlist
+	 * 
+	 * @return the maximum number of songs in the playlist
+	 */
+	public int getN() {
+		return n;
 	}
 	
 	/**
 	 * Adds a song to the end of the playlist, if it
 	 * does not exist yet and selects it,
-	 * if addition is possible
+	 * if addition is possible. If the playlist is full,
+	 * the oldest song is discarded.
 	 *
 	 * @param song the element to be added
 	 * @requires song != null 
@@ -39,11 +73,11 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
 	 * 						getIndexSelected() == size() - 1
 	 */
 	@Override
-	public boolean add(ISong song) {
-		while(super.size() >= N)
+	public synchronized boolean add(ISong song) {
+		if(size() == n && !inPlaylist(song))
 			remove();
 		super.addAutomatic(song);
-		return size() <= N && super.getIndexSelected() == size() - 1;
+		return size() <= n && super.getIndexSelected() == size() - 1;
 	}
 	
 	/**
@@ -56,22 +90,27 @@ public class MostRecentlyAddedSongsPlaylist extends SmartPlaylist {
 	 * 							&& size() == \old(size()) 
 	 */
 	@Override
-	public boolean remove() {
-		super.removeAutomatic(0);
+	public synchronized boolean remove() {
+		if(size() > 0)
+			super.removeAutomatic(0);
 		return !super.someSelected();
 	}
 	
 	/**
 	 * Reaction to events, namely those emitted by the music library that 
 	 * backs up this playlist (can affect the content of the playlist).
-	 * In this playlist, the processed events are SongAddedLibraryEvent
-	 * and SongRemovedLibraryEvent.
+	 * In this playlist, the processed events are SongAddedLibraryEvent,
+	 * SongBatchAddedLibraryEvent and SongRemovedLibraryEvent.
 	 */
 	@Override
-	public void processEvent(SongLibraryEvent e) {
+	public synchronized void processEvent(SongLibraryEvent e) {
 		if(e instanceof SongAddedLibraryEvent)
 			add(e.getModifiedSong());
-		else if(e instanceof SongRemovedLibraryEvent)
+		else if(e instanceof SongBatchAddedLibraryEvent batch) {
+			List<Song> added = batch.getAddedSongs();
+			for(Song song : added.subList(Math.max(0, added.size() - n), added.size()))
+				add(song);
+		} else if(e instanceof SongRemovedLibraryEvent)
 			super.processRemoved(e);
 	}
 	
@@ -98,6 +98,33 @@ public interface Playlist extends Listener<SongLibraryEvent>, PropertyChangeList
 	 * 					size() == \old(size()) 
 	 */
 	boolean moveUpSelected(int i);
+	
+	/**
+	 * Moves the song at position from to position to, shifting the songs 
+	 * in between by one position, if movement in the playlist is possible.
+	 * The selected song stays selected.
+	 * 
+	 * @param from the position of the song to move
+	 * @param to the new position of the song
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 * @return true if the song was moved, false otherwise
+	 * @ensures size() == \old(size())
+	 */
+	boolean move(int from, int to);
+	
+	/**
+	 * Moves the songs at the given positions so they are together, in the order
+	 * they had in the playlist, starting at position to, if movement in the 
+	 * playlist is possible (e.g. when several rows are dragged and dropped).
+	 * The selected song stays selected.
+	 * 
+	 * @param rows the distinct positions of the songs to move
+	 * @param to the position of the first moved song once they are moved
+	 * @requires every row is in 0..size()-1 && 0 <= to <= size() - rows.length
+	 * @return true if the songs were moved, false otherwise
+	 * @ensures size() == \old(size())
+	 */
+	boolean moveRows(int[] rows, int to);
 
 	
 	/**
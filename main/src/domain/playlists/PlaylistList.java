@@ -7,7 +7,7 @@ import util.adts.ArrayQListWithSelection;
 import util.adts.QListWithSelection;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * PlaylistList represents a list of Playlists associated with a certain MusicLibrary.
  * A Playlist can be selected in this list.
@@ -122,6 +122,19 @@ public class PlaylistList implements QListWithSelection<Playlist> {
 		playlists.add(e);
 	}
 	
+	/**
+	 * Moves the playlist at position from to position to. The selected playlist
+	 * stays selected.
+	 * 
+	 * @param from the position of the playlist to move
+	 * @param to the new position of the playlist
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	@Override
+	public void move(int from, int to) {
+		playlists.move(from, to);
+	}
+	
 	/**
 	 * Returns true if some playlist is selected.
 	 * 
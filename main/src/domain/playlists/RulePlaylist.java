@@ -0,0 +1,266 @@
+package domain.playlists;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongAddedLibraryEvent;
+import domain.core.SongBatchAddedLibraryEvent;
+import domain.core.SongLibraryEvent;
+import domain.core.SongMovedLibraryEvent;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.core.SongUpdatedLibraryEvent;
+import domain.facade.ISong;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * RulePlaylist is a type of SmartPlaylist that contains the songs of the library that
+ * satisfy a given rule, sorted by a given order and limited to a given number of songs.
+ *
+ * The library is only gone through when the playlist is created. After that, each event
+ * emitted by the library checks the rule against the song of the event only. The songs
+ * that satisfy the rule are kept sorted, together with the position of each one, so the
+ * song of the event is found in constant time and put in its new place by a binary
+ * search; only the songs between its old and new places are shifted. The songs of the
+ * playlist are the first songs that satisfy the rule, so the same rows are shifted in
+ * the playlist instead of filling it again.
+ *
+ */
+public class RulePlaylist extends SmartPlaylist {
+
+	public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+	private SongRule rule;
+	private Comparator<ISong> order;
+	private int limit;
+	private List<ISong> matching;
+	private Map<ISong, Integer> positions;
+
+	/**
+	 * Creates a RulePlaylist with all the songs of the library that satisfy the rule,
+	 * in the order of the library
+	 *
+	 * @param name the playlist's name
+	 * @param library the library associated to the playlist
+	 * @param rule the rule satisfied by the songs of the playlist
+	 */
+	public RulePlaylist(String name, MusicLibrary library, SongRule rule) {
+		this(name, library, rule, (s1, s2) -> 0, NO_LIMIT);
+	}
+
+	/**
+	 * Creates a RulePlaylist with the first limit songs of the library that satisfy the
+	 * rule, in the given order. Songs that are equal in the given order are kept in the
+	 * order of the library.
+	 *
+	 * @param name the playlist's name
+	 * @param library the library associated to the playlist
+	 * @param rule the rule satisfied by the songs of the playlist
+	 * @param order the order of the songs of the playlist
+	 * @param limit the maximum number of songs in the playlist
+	 * @requires limit > 0
+	 */
+	public RulePlaylist(String name, MusicLibrary library, SongRule rule, Comparator<ISong> order, int limit) {
+		super(name, library);
+		this.rule = rule;
+		this.order = order.thenComparing(library.libraryOrder());
+		this.limit = limit;
+		matching = new ArrayList<>();
+		positions = new HashMap<>();
+		subscribe(SongAddedLibraryEvent.class);
+		subscribe(SongBatchAddedLibraryEvent.class);
+		subscribe(SongRatedLibraryEvent.class);
+		subscribe(SongPlayedLibraryEvent.class);
+		subscribe(SongUpdatedLibraryEvent.class);
+		subscribe(SongMovedLibraryEvent.class);
+		subscribe(SongRemovedLibraryEvent.class);
+
+		for(Song song : library)
+			if(rule.test(song))
+				matching.add(song);
+		matching.sort(this.order);
+		for(int i = 0; i < matching.size(); i++)
+			positions.put(matching.get(i), i);
+		for(int i = 0; i < Math.min(limit, matching.size()); i++)
+			insertAutomatic(i, matching.get(i));
+	}
+
+	/**
+	 * Songs cannot be added manually to a RulePlaylist; the song is checked against
+	 * the rule instead
+	 *
+	 * @param song the song to be checked
+	 * @requires song != null
+	 * @return true if the song is in the playlist, false otherwise
+	 */
+	@Override
+	public synchronized boolean add(ISong song) {
+		evaluate(song);
+		return inPlaylist(song);
+	}
+
+	/**
+	 * Songs cannot be removed manually from a RulePlaylist
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean remove() {
+		return false;
+	}
+
+	/**
+	 * Checks the rule against the song, putting it in its place among the songs that
+	 * satisfy the rule, or taking it out of them
+	 *
+	 * @param song the song to be checked
+	 */
+	private void evaluate(ISong song) {
+		Integer from = positions.get(song);
+		boolean matches = rule.test(song);
+
+		if(from != null && matches) {
+			int to = insertionPoint(song, from);
+			shift(from, to);
+			updateRows(from, to);
+		} else if(from != null) {
+			removeMatching(from);
+			updateRows(from, -1);
+		} else if(matches) {
+			int to = insertionPoint(song, -1);
+			matching.add(to, song);
+			reindex(to, matching.size() - 1);
+			updateRows(-1, to);
+		}
+	}
+
+	/**
+	 * Takes a song out of the songs that satisfy the rule, whether it still satisfies it
+	 * or not
+	 *
+	 * @param song the song
+	 */
+	private void discard(ISong song) {
+		Integer from = positions.get(song);
+		if(from != null) {
+			removeMatching(from);
+			updateRows(from, -1);
+		}
+	}
+
+	/**
+	 * Returns the position where the song should be among the songs that satisfy the
+	 * rule, ignoring the song at the given position
+	 *
+	 * @param song the song
+	 * @param skip the current position of the song, or -1 if it is not there
+	 * @return the position of the song once the song at skip is taken out
+	 */
+	private int insertionPoint(ISong song, int skip) {
+		int low = 0;
+		int high = skip >= 0 ? matching.size() - 1 : matching.size();
+
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			ISong other = matching.get(skip >= 0 && mid >= skip ? mid + 1 : mid);
+			if(order.compare(other, song) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Moves the song at position from to position to among the songs that satisfy the
+	 * rule, shifting the songs in between
+	 *
+	 * @param from the current position of the song
+	 * @param to the new position of the song
+	 */
+	private void shift(int from, int to) {
+		ISong song = matching.get(from);
+		int step = from < to ? 1 : -1;
+		for(int i = from; i != to; i += step)
+			matching.set(i, matching.get(i + step));
+		matching.set(to, song);
+		reindex(Math.min(from, to), Math.max(from, to));
+	}
+
+	/**
+	 * Takes the song at the given position out of the songs that satisfy the rule
+	 *
+	 * @param from the position of the song
+	 */
+	private void removeMatching(int from) {
+		positions.remove(matching.remove(from));
+		reindex(from, matching.size() - 1);
+	}
+
+	/**
+	 * Updates the positions of the songs that satisfy the rule between the given positions
+	 *
+	 * @param first the first position updated
+	 * @param last the last position updated
+	 */
+	private void reindex(int first, int last) {
+		for(int i = first; i <= last; i++)
+			positions.put(matching.get(i), i);
+	}
+
+	/**
+	 * Updates the backing playlist, which holds the first limit songs that satisfy the
+	 * rule, after one song changed its position among them
+	 *
+	 * @param from the old position of the song, or -1 if it did not satisfy the rule
+	 * @param to the new position of the song, or -1 if it no longer satisfies the rule
+	 */
+	private void updateRows(int from, int to) {
+		boolean wasRow = from >= 0 && from < limit;
+		boolean isRow = to >= 0 && to < limit;
+
+		if(wasRow && isRow) {
+			if(from != to)
+				moveAutomatic(from, to);
+		} else {
+			if(wasRow)
+				removeAutomatic(from);
+			if(isRow)
+				insertAutomatic(to, matching.get(to));
+
+			int rows = Math.min(limit, matching.size());
+			if(size() > rows)
+				removeAutomatic(size() - 1);
+			else if(size() < rows)
+				insertAutomatic(size(), matching.get(size()));
+		}
+	}
+
+	/**
+	 * Reaction to events, namely those emitted by the music library that
+	 * backs up this playlist (can affect the content of the playlist).
+	 * In this playlist, the processed events are SongAddedLibraryEvent,
+	 * SongBatchAddedLibraryEvent, SongRatedLibraryEvent, SongPlayedLibraryEvent,
+	 * SongUpdatedLibraryEvent, SongMovedLibraryEvent and SongRemovedLibraryEvent.
+	 */
+	@Override
+	public synchronized void processEvent(SongLibraryEvent e) {
+		if(e instanceof SongBatchAddedLibraryEvent batch) {
+			for(Song song : batch.getAddedSongs())
+				evaluate(song);
+		} else if(e instanceof SongRemovedLibraryEvent)
+			discard(e.getModifiedSong());
+		else if(e instanceof SongAddedLibraryEvent || e instanceof SongRatedLibraryEvent
+				|| e instanceof SongPlayedLibraryEvent || e instanceof SongUpdatedLibraryEvent
+				|| e instanceof SongMovedLibraryEvent)
+			evaluate(e.getModifiedSong());
+	}
+
+}
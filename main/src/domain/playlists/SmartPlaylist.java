@@ -2,12 +2,14 @@ package domain.playlists;
 
 import domain.core.MusicLibrary;
 import domain.facade.ISong;
+import util.adts.QListWithSelection;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * SmartPlaylists represent Playlists that do not allowed manual addition/removal of songs.
- * This type of Playlist also does not allow changes of order through moveUpSelected method.
+ * This type of Playlist also does not allow changes of order through moveUpSelected, move and
+ * moveRows methods.
  * 
  * However, the rest of the features of a Playlist are present in SmartPlaylist.
  *
@@ -24,30 +26,69 @@ public abstract class SmartPlaylist extends AbsPlaylist {
 		super(name, library);
 	}
 	
+	/**
+	 * Creates SmartPlaylist with the given name and library, keeping its songs in the given list
+	 * 
+	 * @param name
+	 * @param library
+	 * @param playlist the empty list where the songs of the playlist are kept
+	 */
+	protected SmartPlaylist(String name, MusicLibrary library, QListWithSelection<ISong> playlist) {
+		super(name, library, playlist);
+	}
+	
 	/**
 	 * Automatically adds a song to the SmartPlaylist
 	 * 
 	 * @param song the song to be added
 	 */
-	protected void addAutomatic(ISong song) {
+	protected synchronized void addAutomatic(ISong song) {
 		super.add(song);
 	}
 	
 	/**
-	 * Automatically removes the song in the given index
+	 * Automatically removes the song in the given index. The selected song stays
+	 * selected if it is not the one removed.
 	 * 
 	 * @param index the index of the song to be removed
 	 */
-	protected void removeAutomatic(int index) {
+	protected synchronized void removeAutomatic(int index) {
 		int ogSelected = super.getIndexSelected();
 		if(ogSelected != index) {
 			super.select(index);
 			super.remove();
-			super.select(ogSelected);
+			super.select(ogSelected > index ? ogSelected - 1 : ogSelected);
 		} else
 			super.remove();
 	}
 	
+	/**
+	 * Automatically inserts a song at the given index, shifting the songs from that
+	 * index on. The selected song stays selected.
+	 * 
+	 * @param index the index of the new song
+	 * @param song the song to be inserted
+	 * @requires 0 <= index <= size() && !inPlaylist(song)
+	 */
+	protected synchronized void insertAutomatic(int index, ISong song) {
+		int ogSelected = super.someSelected() ? super.getIndexSelected() : -1;
+		super.add(song);
+		super.move(super.size() - 1, index);
+		super.select(ogSelected >= index ? ogSelected + 1 : ogSelected);
+	}
+	
+	/**
+	 * Automatically moves the song at position from to position to, shifting the
+	 * songs in between. The selected song stays selected.
+	 * 
+	 * @param from the position of the song to move
+	 * @param to the new position of the song
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	protected synchronized void moveAutomatic(int from, int to) {
+		super.move(from, to);
+	}
+	
 	/**
 	 * Overrides the moveUpSelected method, which is not allowed in SmartPlaylist
 	 * 
@@ -58,4 +99,24 @@ public abstract class SmartPlaylist extends AbsPlaylist {
 		return false;
 	}
 	
+	/**
+	 * Overrides the move method, which is not allowed in SmartPlaylist
+	 * 
+	 * @return false
+	 */
+	@Override
+	public boolean move(int from, int to) {
+		return false;
+	}
+	
+	/**
+	 * Overrides the moveRows method, which is not allowed in SmartPlaylist
+	 * 
+	 * @return false
+	 */
+	@Override
+	public boolean moveRows(int[] rows, int to) {
+		return false;
+	}
+	
 }
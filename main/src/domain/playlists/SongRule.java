@@ -0,0 +1,129 @@
+package domain.playlists;
+
+import java.util.regex.Pattern;
+
+import domain.facade.ISong;
+import util.adts.RegExpMatchable;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A SongRule is a condition on a single song, used by RulePlaylist to decide which songs
+ * of the library belong to the playlist. Rules on the genre, artists, album, rate, times
+ * played or textual representation of a song can be combined with and, or and not.
+ *
+ */
+@FunctionalInterface
+public interface SongRule {
+
+	/**
+	 * Checks if the song satisfies the rule
+	 *
+	 * @param song the song
+	 * @requires song != null
+	 * @return true if the song satisfies the rule, false otherwise
+	 */
+	boolean test(ISong song);
+
+	/**
+	 * Returns the rule satisfied by the songs that satisfy both this rule and the other
+	 *
+	 * @param other the other rule
+	 * @return this rule AND other
+	 */
+	default SongRule and(SongRule other) {
+		return song -> test(song) && other.test(song);
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs that satisfy this rule or the other
+	 *
+	 * @param other the other rule
+	 * @return this rule OR other
+	 */
+	default SongRule or(SongRule other) {
+		return song -> test(song) || other.test(song);
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs that do not satisfy the given rule
+	 *
+	 * @param rule the rule
+	 * @return NOT rule
+	 */
+	static SongRule not(SongRule rule) {
+		return song -> !rule.test(song);
+	}
+
+	/**
+	 * Returns the rule satisfied by every song
+	 *
+	 * @return a rule that is always true
+	 */
+	static SongRule any() {
+		return song -> true;
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs of the given genre (ignoring case)
+	 *
+	 * @param genre the genre
+	 * @return a rule on the genre of the song
+	 */
+	static SongRule genre(String genre) {
+		return song -> genre.equalsIgnoreCase(song.getGenre());
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs in which the given artist takes part (ignoring case)
+	 *
+	 * @param artist the artist
+	 * @return a rule on the artists of the song
+	 */
+	static SongRule artist(String artist) {
+		return song -> song.getArtists().stream().anyMatch(artist::equalsIgnoreCase);
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs of the given album (ignoring case)
+	 *
+	 * @param album the album
+	 * @return a rule on the album of the song
+	 */
+	static SongRule album(String album) {
+		return song -> album.equalsIgnoreCase(song.getAlbum());
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs rated with at least the given rate
+	 *
+	 * @param rate the minimum rate
+	 * @return a rule on the rate of the song
+	 */
+	static SongRule rateAtLeast(int rate) {
+		return song -> song.getRating().getRate() >= rate;
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs played at least the given number of times
+	 *
+	 * @param times the minimum number of times played
+	 * @return a rule on the number of times the song was played
+	 */
+	static SongRule playedAtLeast(int times) {
+		return song -> song.getTimesPlayed() >= times;
+	}
+
+	/**
+	 * Returns the rule satisfied by the songs that match the given regex. The regex is
+	 * compiled once, when the rule is created.
+	 *
+	 * @param regexp the regular expression (regex)
+	 * @return a rule on the textual representation of the meta-info of the song
+	 */
+	static SongRule matches(String regexp) {
+		Pattern pattern = Pattern.compile(regexp);
+		return song -> song instanceof RegExpMatchable matchable && matchable.matches(pattern);
+	}
+
+}
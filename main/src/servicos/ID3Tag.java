@@ -0,0 +1,12 @@
+package servicos;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * ID3Tag objects are records with the fields of the ID3 tag of an mp3 file that are used
+ * by the application. Fields that are not in the tag are null.
+ *
+ */
+public record ID3Tag(String title, String artist, String album, String genre) {
+
+}
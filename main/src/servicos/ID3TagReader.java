@@ -0,0 +1,320 @@
+package servicos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import com.mpatric.mp3agic.ID3v1Genres;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * Reads the title, artist, album and genre of an mp3 file from its ID3v2 tag or, if there
+ * is none, from its ID3v1 tag. Only the ID3v2 tag at the start of the file and the last
+ * 128 bytes of the file are read, so the audio frames are never scanned.
+ *
+ */
+public final class ID3TagReader {
+
+	private static final int V1_TAG_SIZE = 128;
+	private static final int V2_HEADER_SIZE = 10;
+	private static final int V2_UNSYNCHRONISATION = 0x80;
+	private static final int V2_EXTENDED_HEADER = 0x40;
+
+	private static final int V23_FRAME_COMPRESSED = 0x80;
+	private static final int V23_FRAME_ENCRYPTED = 0x40;
+	private static final int V23_FRAME_GROUPED = 0x20;
+	private static final int V24_FRAME_GROUPED = 0x40;
+	private static final int V24_FRAME_COMPRESSED = 0x08;
+	private static final int V24_FRAME_ENCRYPTED = 0x04;
+	private static final int V24_FRAME_UNSYNCHRONISED = 0x02;
+	private static final int V24_FRAME_DATA_LENGTH = 0x01;
+
+	private static final Charset[] TEXT_ENCODINGS = {StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16,
+													 StandardCharsets.UTF_16BE, StandardCharsets.UTF_8};
+
+	/**
+	 * An utility class should not have public constructors
+	 */
+	private ID3TagReader() {
+	}
+
+	/**
+	 * Reads the tag of the given mp3 file
+	 *
+	 * @param file the mp3 file
+	 * @return the tag of the file, or an empty optional if the file has no supported tag
+	 * @throws IOException if the file could not be read or its tag is malformed
+	 */
+	public static Optional<ID3Tag> read(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Optional<ID3Tag> tag = readId3v2(channel);
+			if(tag.isEmpty())
+				tag = readId3v1(channel);
+			return tag;
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+			throw new IOException("Malformed ID3 tag: " + file, e);
+		}
+	}
+
+	/**
+	 * Reads the ID3v2 tag at the start of the file. The size in the header is not trusted
+	 * beyond the size of the file, so a corrupted header never allocates more than the file.
+	 *
+	 * @param channel the channel of the file
+	 * @return the ID3v2 tag, or an empty optional if the file has no supported ID3v2 tag
+	 * @throws IOException if the file could not be read
+	 */
+	private static Optional<ID3Tag> readId3v2(FileChannel channel) throws IOException {
+		ByteBuffer buffer = read(channel, 0, V2_HEADER_SIZE);
+		byte[] header = buffer.array();
+		if(buffer.remaining() < V2_HEADER_SIZE || header[0] != 'I' || header[1] != 'D' || header[2] != '3')
+			return Optional.empty();
+
+		int version = header[3];
+		int flags = header[5] & 0xFF;
+		int size = syncsafe(header, 6);
+		if(version < 2 || version > 4 || (version == 2 && (flags & V2_EXTENDED_HEADER) != 0))
+			return Optional.empty();
+
+		byte[] tag = new byte[(int) Math.min(size, Math.max(0, channel.size() - V2_HEADER_SIZE))];
+		ByteBuffer body = read(channel, V2_HEADER_SIZE, tag.length);
+		int length = body.remaining();
+		body.get(tag, 0, length);
+		if(version < 4 && (flags & V2_UNSYNCHRONISATION) != 0)
+			length = resynchronise(tag, 0, length);
+
+		int pos = 0;
+		if(version > 2 && (flags & V2_EXTENDED_HEADER) != 0)
+			pos = length < 4 ? length : version == 3 ? 4 + bigEndian(tag, 0, 4) : syncsafe(tag, 0);
+
+		return Optional.of(readFrames(tag, pos, length, version));
+	}
+
+	/**
+	 * Reads the title, artist, album and genre frames of an ID3v2 tag
+	 *
+	 * @param tag the bytes of the tag, without the header
+	 * @param pos the position of the first frame
+	 * @param end the position after the last byte of the tag
+	 * @param version the major version of the tag
+	 * @return the tag with the fields that were found
+	 */
+	private static ID3Tag readFrames(byte[] tag, int pos, int end, int version) {
+		int idLength = version == 2 ? 3 : 4;
+		int headerLength = version == 2 ? 6 : 10;
+		String title = null;
+		String artist = null;
+		String album = null;
+		String genre = null;
+
+		while(pos >= 0 && pos + headerLength <= end && tag[pos] != 0) {
+			String id = new String(tag, pos, idLength, StandardCharsets.ISO_8859_1);
+			int size;
+			if(version == 2)
+				size = bigEndian(tag, pos + 3, 3);
+			else if(version == 3)
+				size = bigEndian(tag, pos + 4, 4);
+			else
+				size = syncsafe(tag, pos + 4);
+			int formatFlags = version == 2 ? 0 : tag[pos + 9] & 0xFF;
+			int start = pos + headerLength;
+			if(size <= 0 || start + size > end)
+				break;
+
+			String text = frameText(tag, start, size, version, formatFlags);
+			switch(id) {
+			case "TIT2", "TT2" -> title = text;
+			case "TPE1", "TP1" -> artist = text;
+			case "TALB", "TAL" -> album = text;
+			case "TCON", "TCO" -> genre = genreDescription(text);
+			default -> { }
+			}
+			pos = start + size;
+		}
+
+		return new ID3Tag(title, artist, album, genre);
+	}
+
+	/**
+	 * Decodes the text of a text frame, skipping frames that are compressed or encrypted
+	 *
+	 * @param tag the bytes of the tag
+	 * @param start the position of the frame data
+	 * @param size the size of the frame data
+	 * @param version the major version of the tag
+	 * @param formatFlags the format flags of the frame
+	 * @return the text of the frame, or null if it cannot be decoded
+	 */
+	private static String frameText(byte[] tag, int start, int size, int version, int formatFlags) {
+		if(version == 3) {
+			if((formatFlags & (V23_FRAME_COMPRESSED | V23_FRAME_ENCRYPTED)) != 0)
+				return null;
+			if((formatFlags & V23_FRAME_GROUPED) != 0) {
+				start++;
+				size--;
+			}
+		} else if(version == 4) {
+			if((formatFlags & (V24_FRAME_COMPRESSED | V24_FRAME_ENCRYPTED)) != 0)
+				return null;
+			int skip = ((formatFlags & V24_FRAME_GROUPED) != 0 ? 1 : 0) + ((formatFlags & V24_FRAME_DATA_LENGTH) != 0 ? 4 : 0);
+			start += skip;
+			size -= skip;
+			if((formatFlags & V24_FRAME_UNSYNCHRONISED) != 0) {
+				byte[] data = new byte[Math.max(0, size)];
+				System.arraycopy(tag, start, data, 0, data.length);
+				size = resynchronise(data, 0, data.length);
+				tag = data;
+				start = 0;
+			}
+		}
+
+		if(size < 1 || tag[start] < 0 || tag[start] >= TEXT_ENCODINGS.length)
+			return null;
+		return cut(new String(tag, start + 1, size - 1, TEXT_ENCODINGS[tag[start]]));
+	}
+
+	/**
+	 * Reads the ID3v1 tag in the last 128 bytes of the file
+	 *
+	 * @param channel the channel of the file
+	 * @return the ID3v1 tag, or an empty optional if the file has no ID3v1 tag
+	 * @throws IOException if the file could not be read
+	 */
+	private static Optional<ID3Tag> readId3v1(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if(size < V1_TAG_SIZE)
+			return Optional.empty();
+
+		ByteBuffer buffer = read(channel, size - V1_TAG_SIZE, V1_TAG_SIZE);
+		byte[] tag = new byte[V1_TAG_SIZE];
+		buffer.get(tag, 0, buffer.remaining());
+		if(tag[0] != 'T' || tag[1] != 'A' || tag[2] != 'G')
+			return Optional.empty();
+
+		int genre = tag[127] & 0xFF;
+		return Optional.of(new ID3Tag(v1Text(tag, 3), v1Text(tag, 33), v1Text(tag, 63),
+									  genre < ID3v1Genres.GENRES.length ? ID3v1Genres.GENRES[genre] : null));
+	}
+
+	/**
+	 * Decodes a 30 bytes text field of an ID3v1 tag
+	 *
+	 * @param tag the bytes of the tag
+	 * @param start the position of the field
+	 * @return the text of the field
+	 */
+	private static String v1Text(byte[] tag, int start) {
+		return cut(new String(tag, start, 30, StandardCharsets.ISO_8859_1)).trim();
+	}
+
+	/**
+	 * Returns the description of a genre given as text, as a number of the ID3v1 genres
+	 * list or as a number in parenthesis followed, or not, by the description
+	 *
+	 * @param text the text of the genre frame, possibly null
+	 * @return the description of the genre
+	 */
+	private static String genreDescription(String text) {
+		if(text == null)
+			return null;
+
+		String number = text;
+		String description = text;
+		if(text.startsWith("(") && text.indexOf(')') > 0) {
+			number = text.substring(1, text.indexOf(')'));
+			description = text.substring(text.indexOf(')') + 1);
+		}
+
+		try {
+			int genre = Integer.parseInt(number.trim());
+			if(genre >= 0 && genre < ID3v1Genres.GENRES.length)
+				return ID3v1Genres.GENRES[genre];
+		} catch (NumberFormatException e) {
+			// the genre is given by its description
+		}
+		return description;
+	}
+
+	/**
+	 * Returns the text up to the first null character
+	 *
+	 * @param text the text
+	 * @return the text before the first null character
+	 */
+	private static String cut(String text) {
+		int end = text.indexOf('\0');
+		return end < 0 ? text : text.substring(0, end);
+	}
+
+	/**
+	 * Removes the zero bytes inserted after each 0xFF byte by unsynchronisation
+	 *
+	 * @param data the bytes, changed in place
+	 * @param start the position of the first byte
+	 * @param end the position after the last byte
+	 * @return the position after the last byte, once the zero bytes are removed
+	 */
+	private static int resynchronise(byte[] data, int start, int end) {
+		int to = start;
+		for(int from = start; from < end; from++) {
+			data[to++] = data[from];
+			if((data[from] & 0xFF) == 0xFF && from + 1 < end && data[from + 1] == 0)
+				from++;
+		}
+		return to;
+	}
+
+	/**
+	 * Reads a 4 bytes integer in which only the lower 7 bits of each byte are used
+	 *
+	 * @param data the bytes
+	 * @param pos the position of the integer
+	 * @return the integer
+	 */
+	private static int syncsafe(byte[] data, int pos) {
+		return (data[pos] & 0x7F) << 21 | (data[pos + 1] & 0x7F) << 14 | (data[pos + 2] & 0x7F) << 7 | (data[pos + 3] & 0x7F);
+	}
+
+	/**
+	 * Reads a big endian integer with the given number of bytes
+	 *
+	 * @param data the bytes
+	 * @param pos the position of the integer
+	 * @param length the number of bytes of the integer
+	 * @return the integer
+	 */
+	private static int bigEndian(byte[] data, int pos, int length) {
+		int value = 0;
+		for(int i = 0; i < length; i++)
+			value = value << 8 | (data[pos + i] & 0xFF);
+		return value;
+	}
+
+	/**
+	 * Reads up to length bytes of the file, starting at the given position, without
+	 * changing the position of the channel
+	 *
+	 * @param channel the channel of the file
+	 * @param position the position of the first byte
+	 * @param length the number of bytes to read
+	 * @return a buffer with the bytes read, ready to be read
+	 * @throws IOException if the file could not be read
+	 */
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			int n = channel.read(buffer, position + buffer.position());
+			if(n < 0)
+				break;
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+}
@@ -1,55 +1,393 @@
 package servicos;
 
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 import domain.player.Player;
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
 import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+import javazoom.jl.player.AudioDevice;
+import javazoom.jl.player.FactoryRegistry;
+
+/**
+ * Plays an mp3 song, decoding its frames and writing them to an audio device.
+ *
+ * The song that follows may be given to setNext once its first frames were decoded
+ * ahead by predecode. When this song ends, the following one takes over its audio
+ * device, if the samples of both songs have the same format: its first frames are
+ * written right after the last frame of this song, and it goes on being decoded by
+ * the same thread, so there is no gap between them. Otherwise this song notifies
+ * that it ended as soon as its last frame is decoded and the following song starts
+ * on its own device while the last frames of this one are still being heard.
+ */
+public class JLPlayer {
+
+	/**
+	 * How long an idle decoder thread is kept before it ends, in seconds
+	 */
+	private static final long DECODER_KEEP_ALIVE = 30;
 
-public class JLPlayer extends javazoom.jl.player.Player {
-   
-    private boolean isPlaying;
-    private boolean stop;
-    private boolean end;
-    private Thread player;
+	/**
+	 * The threads that decode the songs, shared by every player. A thread is reused
+	 * by the next song once the song it was decoding ends or is stopped.
+	 */
+	private static final ExecutorService DECODERS = newDecoderPool();
+	private static final AtomicInteger ACTIVE_DECODERS = new AtomicInteger();
+	private static final AtomicLong STARTED_DECODERS = new AtomicLong();
+
+    private volatile boolean isPlaying;
+    private volatile boolean stop;
+    private volatile boolean end;
+    private volatile boolean draining;
+    private volatile JLPlayer next;
+    private Future<?> decoding;
 	private final Player iPlayer;
+	private final Bitstream bitstream;
+	private final Decoder decoder;
+	private final Deque<short[]> predecoded;
+	private volatile AudioDevice device;
+	private boolean closed;
+	private final ReentrantLock lock;
+	private final Condition changed;
+
+    public JLPlayer (InputStream stream, Player iPlay) throws JavaLayerException {
+    	this (stream, FactoryRegistry.systemRegistry().createAudioDevice(), iPlay);
+    }
 
-    public JLPlayer (java.io.InputStream stream, Player iPlay) throws JavaLayerException {
-    	super (stream);
+    JLPlayer (InputStream stream, AudioDevice device, Player iPlay) throws JavaLayerException {
     	this.iPlayer = iPlay;
-    	
-    	player = new Thread() {
-    		
-    		@Override
-            public void run() {
-                try { 
-                	while (!stop && !end) {
-                	  while (isPlaying && !stop && !end) {
-                		 if (!decodeFrame ())
-                			 end = true;
-                	  }
-                	}
-                }
-                catch (Exception e) { 
-                	System.out.println(e); 
-                }
-                if (stop) 
-                	iPlayer.hasStopedSong();
-                else
-                	iPlayer.hasEndedSong();
-            }
-        };
-        player.start();
-    }
-    
-    @Override
+    	this.bitstream = new Bitstream(stream);
+    	this.decoder = new Decoder();
+    	this.predecoded = new ArrayDeque<>();
+    	this.device = device;
+    	this.closed = false;
+    	this.lock = new ReentrantLock();
+    	this.changed = lock.newCondition();
+    	this.decoding = null;
+    	this.next = null;
+    	device.open(decoder);
+    }
+
+    /**
+     * Creates the pool of decoder threads. The threads are daemons, so they do not
+     * keep the application running, and end after being idle for a while.
+     *
+     * @return the pool of decoder threads
+     */
+    private static ExecutorService newDecoderPool () {
+    	AtomicInteger count = new AtomicInteger();
+    	return new ThreadPoolExecutor(0, Integer.MAX_VALUE, DECODER_KEEP_ALIVE, TimeUnit.SECONDS,
+    			new SynchronousQueue<>(), task -> {
+    				Thread thread = new Thread(task, "jlplayer-decoder-" + count.incrementAndGet());
+    				thread.setDaemon(true);
+    				return thread;
+    			});
+    }
+
+    /**
+     * Returns the number of songs being decoded (playing or paused) at the moment
+     *
+     * @return the number of active decoders
+     */
+    public static int activeDecoders () {
+    	return ACTIVE_DECODERS.get();
+    }
+
+    /**
+     * Returns the number of songs whose decoding was started so far
+     *
+     * @return the number of decoders started
+     */
+    public static long startedDecoders () {
+    	return STARTED_DECODERS.get();
+    }
+
+    /**
+     * Decodes the first frames of the song ahead of time, so it can follow another
+     * song without a gap. It is called before the song is played.
+     *
+     * @param frames the number of frames to decode
+     * @throws JavaLayerException if the frames could not be decoded
+     */
+    public void predecode (int frames) throws JavaLayerException {
+    	short[] samples = readFrame();
+    	while (samples != null) {
+    		predecoded.add(samples);
+    		samples = predecoded.size() < frames ? readFrame() : null;
+    	}
+    }
+
+    /**
+     * Sets the song that takes over the audio device of this song when it ends
+     *
+     * @param next the following song, whose first frames were decoded ahead, or null
+     */
+    public void setNext (JLPlayer next) {
+    	this.next = next;
+    }
+
+    /**
+     * Decodes the songs, starting with the given one, until one of them is stopped
+     * or ends without a following song that takes over its device
+     *
+     * @param first the song to decode first
+     */
+    private static void decodeSongs (JLPlayer first) {
+    	JLPlayer player = first;
+    	while (player != null)
+    		player = player.decode();
+    }
+
+    /**
+     * Decodes the song until it ends or is stopped, waiting while it is paused,
+     * and notifies the player of how it finished
+     *
+     * @return the following song, if it took over the audio device, or null
+     */
+    private JLPlayer decode () {
+        try {
+        	while (awaitPlaying()) {
+        		if (!decodeFrame ())
+        			end = true;
+        	}
+        }
+        catch (Exception e) {
+        	System.out.println(e);
+        }
+        ACTIVE_DECODERS.decrementAndGet();
+
+        JLPlayer following = null;
+        if (stop)
+        	iPlayer.hasStopedSong();
+        else {
+        	// from now on the device is drained or handed over, not closed by stop
+        	draining = true;
+        	JLPlayer candidate = next;
+        	if (candidate != null && candidate.takeOver(this)) {
+        		following = candidate;
+        		following.writePredecoded();
+        		iPlayer.hasEndedSong();
+        		closeBitstream();
+        	} else {
+        		iPlayer.hasEndedSong();
+        		drain();
+        	}
+        }
+        return following;
+    }
+
+    /**
+     * Takes over the audio device of the given song, which ended, if this song was not
+     * started or stopped yet and its samples have the same format as those of the
+     * given song. This song is then playing, decoded by the thread of the given song.
+     *
+     * @param previous the song that ended
+     * @return true if this song took over the device, false otherwise
+     */
+    private boolean takeOver (JLPlayer previous) {
+    	lock.lock();
+    	try {
+    		boolean sameFormat = !predecoded.isEmpty()
+    				&& decoder.getOutputFrequency() == previous.decoder.getOutputFrequency()
+    				&& decoder.getOutputChannels() == previous.decoder.getOutputChannels();
+    		boolean takes = sameFormat && !stop && decoding == null;
+    		if (takes) {
+    			AudioDevice own = device;
+    			device = previous.device;
+    			own.close();
+    			isPlaying = true;
+    			decoding = previous.decoding;
+    			ACTIVE_DECODERS.incrementAndGet();
+    			STARTED_DECODERS.incrementAndGet();
+    			changed.signalAll();
+    		}
+    		return takes;
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+
+    /**
+     * Writes the frames decoded ahead to the audio device
+     */
+    private void writePredecoded () {
+    	try {
+    		while (!predecoded.isEmpty() && !stop)
+    			write(predecoded.poll());
+    	}
+    	catch (JavaLayerException e) {
+    		System.out.println(e);
+    	}
+    }
+
+    /**
+     * Writes the next frame of the song to the audio device, starting with the frames
+     * decoded ahead, if any
+     *
+     * @return false if the song ended, true otherwise
+     * @throws JavaLayerException if the frame could not be decoded or written
+     */
+    private boolean decodeFrame () throws JavaLayerException {
+    	short[] samples = predecoded.isEmpty() ? readFrame() : predecoded.poll();
+    	if (samples != null)
+    		write(samples);
+    	return samples != null;
+    }
+
+    /**
+     * Reads and decodes the next frame of the song
+     *
+     * @return the samples of the frame, or null if the song ended
+     * @throws JavaLayerException if the frame could not be read or decoded
+     */
+    private short[] readFrame () throws JavaLayerException {
+    	short[] samples = null;
+    	Header header = bitstream.readFrame();
+    	if (header != null) {
+    		SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+    		samples = Arrays.copyOf(output.getBuffer(), output.getBufferLength());
+    		bitstream.closeFrame();
+    	}
+    	return samples;
+    }
+
+    /**
+     * Writes samples to the audio device, unless it was closed
+     *
+     * @param samples the samples
+     * @throws JavaLayerException if the samples could not be written
+     */
+    private void write (short[] samples) throws JavaLayerException {
+    	AudioDevice out = device;
+    	if (out.isOpen())
+    		out.write(samples, 0, samples.length);
+    }
+
+    /**
+     * Waits until the last frames written to the audio device are heard and closes it
+     */
+    private void drain () {
+    	try {
+    		device.flush();
+    	}
+    	catch (Exception e) {
+    		System.out.println(e);
+    	}
+    	close();
+    }
+
+    /**
+     * Waits while the song is paused. The state is only checked without the lock
+     * while the song plays, so decoding a frame does not take it.
+     *
+     * @return true if the next frame should be decoded, false if the song was
+     *         stopped or ended
+     */
+    private boolean awaitPlaying () {
+    	if (isPlaying && !stop && !end)
+    		return true;
+
+    	lock.lock();
+    	try {
+    		while (!isPlaying && !stop && !end)
+    			changed.awaitUninterruptibly();
+    		return !stop && !end;
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+
+    /**
+     * Wakes up the decoder thread after a change of state
+     */
+    private void signalChange () {
+    	lock.lock();
+    	try {
+    		changed.signalAll();
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+
+    /**
+     * Starts or resumes decoding. Decoding is only handed to a decoder thread the
+     * first time, so a player loaded ahead of time does not use one until then.
+     */
     public void play () {
-    	isPlaying = true;
+    	lock.lock();
+    	try {
+    		isPlaying = true;
+    		if (decoding == null && !stop) {
+    			ACTIVE_DECODERS.incrementAndGet();
+    			STARTED_DECODERS.incrementAndGet();
+    			decoding = DECODERS.submit(() -> decodeSongs(this));
+    		}
+    		changed.signalAll();
+    	} finally {
+    		lock.unlock();
+    	}
     }
-    
+
+    /**
+     * Pauses decoding. The decoder thread waits, without using the processor,
+     * until the song is played or stopped.
+     */
     public void still () {
     	isPlaying = false;
     }
-    
+
+    /**
+     * Stops decoding. The decoder thread finishes the frame it is decoding, if any,
+     * notifies that the song was stopped and goes back to the pool; stop does not
+     * wait for it, so it may be called by the decoder thread itself. A song that was
+     * already decoded is not cut short: its last frames are still heard, or its
+     * device is used by the following song.
+     */
     public void stop () {
     	stop = true;
-    	super.close();
+    	signalChange();
+    	if (!draining)
+    		close();
     }
+
+    /**
+     * Closes the audio device and the stream of the song
+     */
+    private void close () {
+    	synchronized (this) {
+    		if (!closed) {
+    			closed = true;
+    			device.close();
+    		}
+    	}
+    	closeBitstream();
+    }
+
+    /**
+     * Closes the stream of the song
+     */
+    private void closeBitstream () {
+    	try {
+    		bitstream.close();
+    	}
+    	catch (BitstreamException e) {
+    		// the song is over, so the stream is not read again
+    	}
+    }
+
 }
@@ -0,0 +1,143 @@
+package servicos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * An input stream over a file mapped in memory. The file is mapped one window at a
+ * time, so large files do not need a large mapping, and reading does not make a
+ * system call for each small read: the operating system reads the pages of the
+ * window ahead, and load can be used to read the whole window before it is needed.
+ *
+ */
+public class MappedFileInputStream extends InputStream {
+
+	public static final int DEFAULT_WINDOW = 4 * 1024 * 1024;
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private final FileChannel channel;
+	private final long size;
+	private final int window;
+	private ByteBuffer buffer;
+	private long base;
+
+	/**
+	 * Opens the given file, mapping it in windows of the default size
+	 *
+	 * @param file the file to read
+	 * @throws IOException if the file could not be opened or mapped
+	 */
+	public MappedFileInputStream(Path file) throws IOException {
+		this(file, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Opens the given file, mapping it in windows of the given size
+	 *
+	 * @param file the file to read
+	 * @param window the number of bytes mapped at a time
+	 * @throws IOException if the file could not be opened or mapped
+	 * @requires window > 0
+	 */
+	public MappedFileInputStream(Path file, int window) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.window = window;
+		try {
+			this.size = channel.size();
+			map(0);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Maps the window that starts at the given position of the file
+	 *
+	 * @param from the position of the file
+	 * @throws IOException if the window could not be mapped
+	 */
+	private void map(long from) throws IOException {
+		base = from;
+		buffer = from < size ? channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(window, size - from))
+							 : EMPTY;
+	}
+
+	/**
+	 * Makes sure there is a byte to read in the current window, mapping the next
+	 * window if the current one was read
+	 *
+	 * @return false if the end of the file was reached, true otherwise
+	 * @throws IOException if the next window could not be mapped
+	 */
+	private boolean ensureRemaining() throws IOException {
+		if (!buffer.hasRemaining() && base + buffer.limit() < size)
+			map(base + buffer.limit());
+		return buffer.hasRemaining();
+	}
+
+	@Override
+	public int read() throws IOException {
+		return ensureRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		Objects.checkFromIndexSize(off, len, b.length);
+		int result = 0;
+		if (len > 0) {
+			if (ensureRemaining()) {
+				result = Math.min(len, buffer.remaining());
+				buffer.get(b, off, result);
+			} else
+				result = -1;
+		}
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		if (n > 0) {
+			long position = base + buffer.position();
+			long target = Math.min(size, position + n);
+			if (target < base + buffer.limit())
+				buffer.position((int) (target - base));
+			else
+				map(target);
+			skipped = target - position;
+		}
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return (int) Math.min(Integer.MAX_VALUE, size - base - buffer.position());
+	}
+
+	/**
+	 * Reads the pages of the current window into memory, so the following reads
+	 * do not wait for the disk
+	 */
+	public void load() {
+		if (buffer instanceof MappedByteBuffer mapped)
+			mapped.load();
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = EMPTY;
+		base = size;
+		channel.close();
+	}
+
+}
@@ -172,7 +172,6 @@ public class UI {
 			e.printStackTrace();
 		}
 		 */		
-		System.exit(0);
 	}
 
 	/**
@@ -184,7 +183,7 @@ public class UI {
 		RowAction fillSongsLibrary = new RowAction (table, null, 0) {
 			@Override
 			void fillData() {
-				for (ISong s : songsLibraryController.getMatches(".*")) 
+				for (ISong s : songsLibraryController.getSongs()) 
 					fillRow (s);
 			}
 		};
@@ -292,9 +291,12 @@ public class UI {
 		column.pack();
 	}
 	/**
-	 * Load some songs and playlists 
+	 * Load some songs and playlists, if none were loaded from the catalog 
 	 */
 	private void loadSongsAndPlaylists() {
+		if (songsLibraryController.numberOfSongs() > 0)
+			return;
+		
 		songsLibraryController.addSong("songs/Goldberg Variations.mp3");
 		songsLibraryController.addSong("songs/MeuFado.mp3");
 		songsLibraryController.addSong("songs/Fado Tordo.mp3");
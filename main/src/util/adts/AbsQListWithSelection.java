@@ -52,6 +52,22 @@ public abstract class AbsQListWithSelection<E> implements QListWithSelection<E>{
 		return selected;
 	}
 	
+	/**
+	 * Updates the selection after the element at position from was moved to position to,
+	 * so the same element stays selected
+	 * 
+	 * @param from the old position of the moved element
+	 * @param to the new position of the moved element
+	 */
+	protected void moveSelection(int from, int to) {
+		if (selected == from)
+			selected = to;
+		else if (from < selected && selected <= to)
+			selected -= 1;
+		else if (to <= selected && selected < from)
+			selected += 1;
+	}
+	
 	/**
 	 * Selects the previous element if it applies, otherwise, no element is selected
 	 */
@@ -1,6 +1,7 @@
 package util.adts;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 
 
@@ -48,6 +49,23 @@ public final class ArrayQListWithSelection<E> extends AbsQListWithSelection<E> {
 			list.remove(getIndexSelected());
 	}
 
+	/**
+	 * Moves the element at position from to position to, rotating the elements
+	 * in between by one position. The selection follows the selected element.
+	 * 
+	 * @param from the position of the element to move
+	 * @param to the new position of the element
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	@Override
+	public void move(int from, int to) {
+		if (from < to)
+			Collections.rotate(list.subList(from, to + 1), -1);
+		else if (to < from)
+			Collections.rotate(list.subList(to, from + 1), 1);
+		moveSelection(from, to);
+	}
+
 	/**
 	 * Returns the number of elements in the list 
 	 * 
@@ -0,0 +1,182 @@
+package util.adts;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * @param <E>
+ *
+ * A binary min-heap of distinct elements that knows the position of each element,
+ * so an element can be removed, or moved after its key changed, in logarithmic time.
+ * Elements are compared with the given comparator, which may read keys that change
+ * while the element is in the heap, as long as update is called after each change.
+ *
+ */
+public class IndexedMinHeap<E> {
+
+	private final Comparator<? super E> comparator;
+	private final List<E> heap;
+	private final Map<E, Integer> positions;
+
+	/**
+	 * Creates an empty heap ordered by the given comparator
+	 *
+	 * @param comparator the order of the elements, the smallest at the top
+	 */
+	public IndexedMinHeap(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		this.heap = new ArrayList<>();
+		this.positions = new HashMap<>();
+	}
+
+	/**
+	 * Returns the number of elements in the heap
+	 *
+	 * @return the number of elements in the heap
+	 */
+	public int size() {
+		return heap.size();
+	}
+
+	/**
+	 * Checks if the element is in the heap
+	 *
+	 * @param e the element
+	 * @return true if e is in the heap, false otherwise
+	 */
+	public boolean contains(E e) {
+		return positions.containsKey(e);
+	}
+
+	/**
+	 * Adds an element to the heap
+	 *
+	 * @param e the element to be added
+	 * @requires !contains(e)
+	 * @ensures contains(e) && size() == \old(size()) + 1
+	 */
+	public void add(E e) {
+		heap.add(e);
+		positions.put(e, heap.size() - 1);
+		siftUp(heap.size() - 1);
+	}
+
+	/**
+	 * Returns the smallest element of the heap
+	 *
+	 * @return the smallest element
+	 * @requires size() > 0
+	 */
+	public E peek() {
+		return heap.get(0);
+	}
+
+	/**
+	 * Removes and returns the smallest element of the heap
+	 *
+	 * @return the smallest element
+	 * @requires size() > 0
+	 * @ensures size() == \old(size()) - 1
+	 */
+	public E poll() {
+		E top = heap.get(0);
+		removeAt(0);
+		return top;
+	}
+
+	/**
+	 * Removes the element from the heap, if it is there
+	 *
+	 * @param e the element to be removed
+	 * @return true if the element was in the heap, false otherwise
+	 * @ensures !contains(e)
+	 */
+	public boolean remove(E e) {
+		Integer i = positions.get(e);
+		if(i != null)
+			removeAt(i);
+		return i != null;
+	}
+
+	/**
+	 * Moves the element to its place after its key changed
+	 *
+	 * @param e the element whose key changed
+	 * @requires contains(e)
+	 */
+	public void update(E e) {
+		int i = positions.get(e);
+		siftUp(i);
+		siftDown(positions.get(e));
+	}
+
+	/**
+	 * Removes the element at the given position of the backing list
+	 *
+	 * @param i the position
+	 */
+	private void removeAt(int i) {
+		int last = heap.size() - 1;
+		positions.remove(heap.get(i));
+		E moved = heap.remove(last);
+		if(i < last) {
+			set(i, moved);
+			siftUp(i);
+			siftDown(positions.get(moved));
+		}
+	}
+
+	/**
+	 * Moves the element at position i up while it is smaller than its parent
+	 *
+	 * @param i the position of the element
+	 */
+	private void siftUp(int i) {
+		E e = heap.get(i);
+		while(i > 0) {
+			int parent = (i - 1) / 2;
+			if(comparator.compare(e, heap.get(parent)) >= 0)
+				break;
+			set(i, heap.get(parent));
+			i = parent;
+		}
+		set(i, e);
+	}
+
+	/**
+	 * Moves the element at position i down while it is larger than its smallest child
+	 *
+	 * @param i the position of the element
+	 */
+	private void siftDown(int i) {
+		E e = heap.get(i);
+		int half = heap.size() / 2;
+		while(i < half) {
+			int child = 2 * i + 1;
+			if(child + 1 < heap.size() && comparator.compare(heap.get(child + 1), heap.get(child)) < 0)
+				child++;
+			if(comparator.compare(e, heap.get(child)) <= 0)
+				break;
+			set(i, heap.get(child));
+			i = child;
+		}
+		set(i, e);
+	}
+
+	/**
+	 * Places the element at position i, recording its position
+	 *
+	 * @param i the position
+	 * @param e the element
+	 */
+	private void set(int i, E e) {
+		heap.set(i, e);
+		positions.put(e, i);
+	}
+
+}
@@ -0,0 +1,62 @@
+package util.adts;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * @param <T>
+ *
+ * A pool of canonical instances of immutable values. Interning a value gives the
+ * instance of the pool equal to it, so equal values (e.g. the genre of thousands of
+ * songs) are kept only once. The pool may be used by several threads at the same time.
+ *
+ * The pool only holds its values weakly: a value that is no longer used outside the
+ * pool (e.g. the album of songs that were all removed) is taken out of it by the
+ * garbage collector.
+ *
+ */
+public class InternPool<T> {
+
+	private final Map<T, WeakReference<T>> values;
+
+	/**
+	 * Creates an empty pool
+	 */
+	public InternPool() {
+		values = new WeakHashMap<>();
+	}
+
+	/**
+	 * Returns the instance of the pool equal to the given value, adding the value to
+	 * the pool if there is none
+	 *
+	 * @param value the value, possibly null
+	 * @requires value is immutable
+	 * @return the canonical instance equal to value, or null if value is null
+	 */
+	public synchronized T intern(T value) {
+		T result = null;
+		if (value != null) {
+			WeakReference<T> canonical = values.get(value);
+			result = canonical == null ? null : canonical.get();
+			if (result == null) {
+				values.put(value, new WeakReference<>(value));
+				result = value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of values in the pool
+	 *
+	 * @return the number of values in the pool
+	 */
+	public synchronized int size() {
+		return values.size();
+	}
+
+}
@@ -0,0 +1,66 @@
+package util.adts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * A bounded cache of compiled regular expressions. When the cache is full,
+ * the least recently used pattern is discarded.
+ *
+ */
+public class PatternCache {
+
+	private final int capacity;
+	private final Map<String, Pattern> patterns;
+
+	/**
+	 * Creates a cache that keeps at most capacity compiled patterns
+	 *
+	 * @param capacity the maximum number of patterns kept in the cache
+	 * @requires capacity > 0
+	 */
+	public PatternCache(int capacity) {
+		this.capacity = capacity;
+		this.patterns = new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+				return size() > PatternCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the compiled pattern for the given regex, compiling it only
+	 * if it is not in the cache
+	 *
+	 * @param regexp the regular expression (regex)
+	 * @requires regexp != null
+	 * @return the compiled pattern for regexp
+	 * @throws java.util.regex.PatternSyntaxException if regexp is not a valid regex
+	 */
+	public synchronized Pattern get(String regexp) {
+		Pattern pattern = patterns.get(regexp);
+		if(pattern == null) {
+			pattern = Pattern.compile(regexp);
+			patterns.put(regexp, pattern);
+		}
+		return pattern;
+	}
+
+	/**
+	 * Returns the number of patterns in the cache
+	 *
+	 * @return the number of patterns in the cache
+	 * @ensures 0 <= \result <= capacity
+	 */
+	public synchronized int size() {
+		return patterns.size();
+	}
+
+}
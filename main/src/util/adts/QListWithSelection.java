@@ -1,7 +1,7 @@
 package util.adts;
 
 /**
- * @author Ins Luz (fc57552), Marta Loureno (fc58249)
+ * @author Inês Luz (fc57552), Marta Lourenço (fc58249)
  *
  * @param <E>
  * 
@@ -58,6 +58,16 @@ public interface QListWithSelection<E> extends QList<E>{
 	 */
 	void remove();
 	
+	/**
+	 * Moves the element at position from to position to, shifting the elements
+	 * in between by one position. The selection follows the selected element.
+	 * 
+	 * @param from the position of the element to move
+	 * @param to the new position of the element
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	void move(int from, int to);
+	
 	/**
 	 * Gets the selected element.
 	 * 
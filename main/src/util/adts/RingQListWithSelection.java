@@ -0,0 +1,191 @@
+package util.adts;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * @param <E>
+ *
+ * A concrete implementation of QListWithSelection with a fixed capacity, backed by a
+ * circular array. When the list is full, adding an element discards the oldest one,
+ * i.e., the first element of the list. Removing the first or the last element takes
+ * constant time.
+ *
+ * It is not safe to use by several threads at the same time; a playlist that keeps
+ * its songs in it guards it with the playlist's own lock.
+ *
+ */
+public final class RingQListWithSelection<E> extends AbsQListWithSelection<E> {
+
+	private Object[] elements;
+	private int head;
+	private int size;
+
+	/**
+	 * Creates an empty list that keeps at most capacity elements
+	 *
+	 * @param capacity the maximum number of elements in the list
+	 * @requires capacity > 0
+	 */
+	public RingQListWithSelection(int capacity) {
+		super();
+		elements = new Object[capacity];
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the maximum number of elements in the list
+	 *
+	 * @return the maximum number of elements in the list
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+
+	/**
+	 * Adds an element at the end of the list. If the list is full, the first element
+	 * is discarded and the selection moves with the elements that stay in the list
+	 * (if the discarded element was selected, no element is selected).
+	 *
+	 * @param e the element to be added
+	 * @ensures \old(size()) < capacity() ==> size() == \old(size()) + 1
+	 * @ensures \old(size()) == capacity() ==> size() == \old(size())
+	 */
+	@Override
+	public void add(E e) {
+		if (size == elements.length) {
+			removeFirst();
+			if (someSelected())
+				super.select(getIndexSelected() - 1);
+		}
+		elements[physical(size)] = e;
+		size++;
+	}
+
+	/**
+	 * Removes the selected element from the list, if possible. The first and the last
+	 * elements are removed in constant time; otherwise the shorter side of the list
+	 * is shifted.
+	 *
+	 * @ensures someSelected() ==> size() == \old(size()) - 1
+	 * @ensures !someSelected() ==> size() == \old(size())
+	 */
+	@Override
+	public void remove() {
+		if (someSelected()) {
+			int i = getIndexSelected();
+			if (i < size / 2) {
+				for (int j = i; j > 0; j--)
+					elements[physical(j)] = elements[physical(j - 1)];
+				removeFirst();
+			} else {
+				for (int j = i; j < size - 1; j++)
+					elements[physical(j)] = elements[physical(j + 1)];
+				elements[physical(size - 1)] = null;
+				size--;
+			}
+		}
+	}
+
+	/**
+	 * Moves the element at position from to position to, shifting the elements
+	 * in between by one position. The selection follows the selected element.
+	 *
+	 * @param from the position of the element to move
+	 * @param to the new position of the element
+	 * @requires 0 <= from < size() && 0 <= to < size()
+	 */
+	@Override
+	public void move(int from, int to) {
+		Object moved = elements[physical(from)];
+		int step = from < to ? 1 : -1;
+		for (int j = from; j != to; j += step)
+			elements[physical(j)] = elements[physical(j + step)];
+		elements[physical(to)] = moved;
+		moveSelection(from, to);
+	}
+
+	/**
+	 * Discards the first element of the list
+	 */
+	private void removeFirst() {
+		elements[head] = null;
+		head = (head + 1) % elements.length;
+		size--;
+	}
+
+	/**
+	 * Returns the number of elements in the list
+	 *
+	 * @return the number of elements in the list
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the element at position i
+	 *
+	 * @param i the position of the element to return
+	 * @requires 0 <= i < size()
+	 * @return the element at position i
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E get(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+		return (E) elements[physical(i)];
+	}
+
+	/**
+	 * Returns an iterator over the elements in the list
+	 *
+	 * @return an iterator over the elements in this list in proper sequence
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return get(next++);
+			}
+		};
+	}
+
+	/**
+	 * Gets the selected element
+	 *
+	 * @requires someSelected()
+	 * @return the selected element
+	 */
+	@Override
+	public E getSelected() {
+		return get(getIndexSelected());
+	}
+
+	/**
+	 * Returns the position in the backing array of the element at position i of the list
+	 *
+	 * @param i the position in the list
+	 * @return the position in the backing array
+	 */
+	private int physical(int i) {
+		return (head + i) % elements.length;
+	}
+
+}
@@ -1,7 +1,7 @@
 package util.observer;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author antonialopes
@@ -10,11 +10,13 @@ import java.util.List;
  * 
  * Represents objects that are being observed by a list of 
  * listeners of events of type E.
+ * The list of listeners is copied on each change, so listeners may be
+ * registered or unregistered by any thread, even while an event is emitted.
  * 
  */
 public abstract class AbsSubject<E extends Event> implements Subject<E> {
 	
-	protected List<Listener<E>> listeners = new ArrayList<>();
+	protected List<Listener<E>> listeners = new CopyOnWriteArrayList<>();
 	
 	protected  AbsSubject() {}
 	
@@ -0,0 +1,281 @@
+package util.observer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * @param <E>
+ * @param <K>
+ *
+ * A RoutedSubject that can deliver its events asynchronously. While asynchronous delivery
+ * is off (the default), events are delivered by the thread that emits them, as in
+ * AbsSubject. Once it is on, emitted events are put in a bounded queue and delivered, in
+ * order, by a dispatcher thread; a thread that emits an event while the queue is full
+ * waits until there is room.
+ *
+ * An event is dropped if the last event waiting in the queue with the same key has the
+ * same type, since the listeners would hear about the same change twice (e.g. two rates
+ * of the same song). The flush method waits until every event emitted before it was
+ * delivered.
+ *
+ * A listener that fails while an event is delivered asynchronously does not stop the
+ * delivery of the following events; its exception is given to the error handler, which
+ * by default is the uncaught exception handler of the dispatcher thread.
+ *
+ */
+public abstract class AsyncSubject<E extends Event, K> extends RoutedSubject<E, K> {
+
+	private final Function<? super E, ? extends K> keyOf;
+	private final int capacity;
+	private final ReentrantLock lock;
+	private final Condition notEmpty;
+	private final Condition notFull;
+	private final Condition delivered;
+	private final Queue<Pending<E, K>> queue;
+	private final Map<K, Pending<E, K>> lastPending;
+	private long emitted;
+	private long done;
+	private long coalesced;
+	private Thread dispatcher;
+	private volatile Thread.UncaughtExceptionHandler errorHandler;
+
+	/**
+	 * An event waiting in the queue, with its key
+	 */
+	private static final class Pending<E, K> {
+
+		private final E event;
+		private final K key;
+
+		private Pending(E event, K key) {
+			this.event = event;
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Creates a subject whose events are routed by their type and by the given key
+	 * and that delivers them synchronously until asynchronous delivery is turned on
+	 *
+	 * @param keyOf gives the key of each event
+	 * @param capacity the maximum number of events waiting to be delivered
+	 * @requires capacity > 0
+	 */
+	protected AsyncSubject(Function<? super E, ? extends K> keyOf, int capacity) {
+		super(keyOf);
+		this.keyOf = keyOf;
+		this.capacity = capacity;
+		lock = new ReentrantLock();
+		notEmpty = lock.newCondition();
+		notFull = lock.newCondition();
+		delivered = lock.newCondition();
+		queue = new ArrayDeque<>();
+		lastPending = new HashMap<>();
+		emitted = 0;
+		done = 0;
+		coalesced = 0;
+		dispatcher = null;
+		errorHandler = null;
+	}
+
+	/**
+	 * Turns asynchronous delivery on or off. Turning it off waits until the events in the
+	 * queue are delivered and stops the dispatcher thread.
+	 *
+	 * @param async true to deliver the events asynchronously, false to deliver them
+	 * 				by the thread that emits them
+	 */
+	public void setAsync(boolean async) {
+		Thread stopped = null;
+		lock.lock();
+		try {
+			if (async && dispatcher == null) {
+				dispatcher = new Thread(this::dispatch, getClass().getSimpleName() + "-events");
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+			} else if (!async && dispatcher != null) {
+				stopped = dispatcher;
+				dispatcher = null;
+				notEmpty.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (stopped != null && stopped != Thread.currentThread())
+			join(stopped);
+	}
+
+	/**
+	 * Sets the handler of the exceptions thrown by the listeners while the events are
+	 * delivered asynchronously
+	 *
+	 * @param handler the handler, or null to use the uncaught exception handler of the
+	 * 				  dispatcher thread
+	 */
+	public void setErrorHandler(Thread.UncaughtExceptionHandler handler) {
+		errorHandler = handler;
+	}
+
+	/**
+	 * Returns true if the events are delivered asynchronously
+	 *
+	 * @return true if asynchronous delivery is on, false otherwise
+	 */
+	public boolean isAsync() {
+		lock.lock();
+		try {
+			return dispatcher != null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns how many events were dropped because the same change was already waiting
+	 * to be delivered
+	 *
+	 * @return the number of coalesced events
+	 */
+	public long getCoalescedEvents() {
+		lock.lock();
+		try {
+			return coalesced;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Emits a given event. If asynchronous delivery is on, the event is put in the queue
+	 * (unless the same change is already there); otherwise, or if the event is emitted by
+	 * a listener during the delivery of another event, it is delivered right away.
+	 *
+	 * @param e event that occurred
+	 */
+	@Override
+	public void emitEvent(E e) {
+		boolean queued = false;
+		lock.lock();
+		try {
+			if (dispatcher != null && dispatcher != Thread.currentThread()) {
+				queued = true;
+				K key = keyOf.apply(e);
+				Pending<E, K> last = lastPending.get(key);
+				if (last != null && last.event.getClass() == e.getClass())
+					coalesced++;
+				else {
+					while (queue.size() >= capacity && dispatcher != null)
+						notFull.awaitUninterruptibly();
+					Pending<E, K> pending = new Pending<>(e, key);
+					queue.add(pending);
+					lastPending.put(key, pending);
+					emitted++;
+					notEmpty.signal();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (!queued)
+			super.emitEvent(e);
+	}
+
+	/**
+	 * Waits until every event emitted so far was delivered to the listeners. Returns at
+	 * once if asynchronous delivery is off or if called by a listener.
+	 */
+	public void flush() {
+		lock.lock();
+		try {
+			long target = emitted;
+			while (done < target && Thread.currentThread() != dispatcher)
+				delivered.awaitUninterruptibly();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Delivers the events in the queue, in order, until asynchronous delivery is turned off
+	 * and the queue is empty
+	 */
+	private void dispatch() {
+		Pending<E, K> next = take();
+
+		while (next != null) {
+			try {
+				super.emitEvent(next.event);
+			} catch (RuntimeException ex) {
+				failed(ex);
+			}
+
+			lock.lock();
+			try {
+				done++;
+				delivered.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			next = take();
+		}
+	}
+
+	/**
+	 * Gives an exception thrown by a listener to the error handler
+	 *
+	 * @param ex the exception
+	 */
+	private void failed(RuntimeException ex) {
+		Thread current = Thread.currentThread();
+		Thread.UncaughtExceptionHandler handler = errorHandler;
+		if (handler == null)
+			handler = current.getUncaughtExceptionHandler();
+		handler.uncaughtException(current, ex);
+	}
+
+	/**
+	 * Takes the next event of the queue, waiting for one if the queue is empty
+	 *
+	 * @return the next event, or null if asynchronous delivery was turned off and
+	 * 		   the queue is empty
+	 */
+	private Pending<E, K> take() {
+		Pending<E, K> next = null;
+		lock.lock();
+		try {
+			while (queue.isEmpty() && dispatcher == Thread.currentThread())
+				notEmpty.awaitUninterruptibly();
+			next = queue.poll();
+			if (next != null) {
+				lastPending.remove(next.key, next);
+				notFull.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return next;
+	}
+
+	/**
+	 * Waits for the given thread to finish
+	 *
+	 * @param thread the thread
+	 */
+	private static void join(Thread thread) {
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package util.observer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * @author In�s Luz (fc57552), Marta Louren�o (fc58249)
+ *
+ * @param <E>
+ * @param <K>
+ *
+ * Represents objects observed by listeners of events of type E that do not need to hear
+ * every event. Besides the listeners of every event, kept by AbsSubject, a listener may
+ * subscribe to the events of a given type only, or to the events of a given type about
+ * a given key (e.g. the removal of a given song).
+ *
+ * Each event is delivered once to each listener: first to the listeners of every event,
+ * then to the listeners of its type and finally to the listeners of its type and key.
+ * The lists of listeners are never changed in place, so a listener may subscribe or
+ * unsubscribe while an event is being delivered, and subscriptions may be changed by
+ * any thread.
+ *
+ */
+public abstract class RoutedSubject<E extends Event, K> extends AbsSubject<E> {
+
+	private final Function<? super E, ? extends K> keyOf;
+	private final ConcurrentMap<Class<?>, List<Listener<E>>> byType;
+	private final ConcurrentMap<Class<?>, ConcurrentMap<K, List<Listener<E>>>> byKey;
+
+	/**
+	 * Creates a subject whose events are routed by their type and by the given key
+	 *
+	 * @param keyOf gives the key of each event
+	 */
+	protected RoutedSubject(Function<? super E, ? extends K> keyOf) {
+		super();
+		this.keyOf = keyOf;
+		this.byType = new ConcurrentHashMap<>();
+		this.byKey = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Emits a given event to the listeners of every event, to the listeners of its type
+	 * and to the listeners of its type and key
+	 *
+	 * @param e event that occurred
+	 */
+	@Override
+	public void emitEvent(E e) {
+		super.emitEvent(e);
+
+		List<Listener<E>> typed = byType.getOrDefault(e.getClass(), Collections.emptyList());
+		for (Listener<E> o : typed)
+			o.processEvent(e);
+
+		Map<K, List<Listener<E>>> keys = byKey.get(e.getClass());
+		K key = keyOf.apply(e);
+		List<Listener<E>> keyed = keys == null || key == null ? Collections.emptyList()
+															  : keys.getOrDefault(key, Collections.emptyList());
+		if (!keyed.isEmpty()) {
+			Set<Listener<E>> delivered = Collections.newSetFromMap(new IdentityHashMap<>());
+			delivered.addAll(listeners);
+			delivered.addAll(typed);
+			for (Listener<E> o : keyed)
+				if (delivered.add(o))
+					o.processEvent(e);
+		}
+	}
+
+	/**
+	 * Registers a listener of the events of exactly the given type
+	 *
+	 * @param type the type of the events
+	 * @param obs listener to be added
+	 */
+	public void registerListener(Class<? extends E> type, Listener<E> obs) {
+		byType.compute(type, (t, list) -> with(list, obs));
+	}
+
+	/**
+	 * Removes the registry of the given listener of the events of the given type
+	 *
+	 * @param type the type of the events
+	 * @param obs listener to be removed
+	 */
+	public void unregisterListener(Class<? extends E> type, Listener<E> obs) {
+		byType.computeIfPresent(type, (t, list) -> without(list, obs));
+	}
+
+	/**
+	 * Registers a listener of the events of exactly the given type about the given key
+	 *
+	 * @param type the type of the events
+	 * @param key the key of the events
+	 * @param obs listener to be added
+	 * @requires key != null
+	 */
+	public void registerListener(Class<? extends E> type, K key, Listener<E> obs) {
+		byKey.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+			 .compute(key, (k, list) -> with(list, obs));
+	}
+
+	/**
+	 * Removes the registry of the given listener of the events of the given type about
+	 * the given key
+	 *
+	 * @param type the type of the events
+	 * @param key the key of the events
+	 * @param obs listener to be removed
+	 */
+	public void unregisterListener(Class<? extends E> type, K key, Listener<E> obs) {
+		Map<K, List<Listener<E>>> keys = byKey.get(type);
+		if (keys != null)
+			keys.computeIfPresent(key, (k, list) -> without(list, obs));
+	}
+
+	/**
+	 * Returns a new list with the elements of the given list followed by the listener
+	 *
+	 * @param list the list, possibly null
+	 * @param obs the listener
+	 * @return an unmodifiable list with the listener at the end
+	 */
+	private List<Listener<E>> with(List<Listener<E>> list, Listener<E> obs) {
+		List<Listener<E>> result = list == null ? new ArrayList<>(1) : new ArrayList<>(list);
+		result.add(obs);
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns a new list with the elements of the given list but the listener
+	 *
+	 * @param list the list
+	 * @param obs the listener
+	 * @return an unmodifiable list without the listener, or null if it would be empty
+	 */
+	private List<Listener<E>> without(List<Listener<E>> list, Listener<E> obs) {
+		List<Listener<E>> result = new ArrayList<>(list);
+		result.remove(obs);
+		return result.isEmpty() ? null : Collections.unmodifiableList(result);
+	}
+
+}
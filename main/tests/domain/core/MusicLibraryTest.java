@@ -0,0 +1,110 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.facade.ISong;
+import domain.player.PlayerFactory;
+
+public class MusicLibraryTest {
+	
+	private MusicLibrary library;
+	private List<Song> expected;
+	private List<Song> removed;
+
+	@BeforeEach
+	public void init() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		library = new MusicLibrary();
+		expected = new ArrayList<>();
+		removed = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Song song = new Song(new SongMetaInfo("title" + i, "genre", Arrays.asList("artist"), "album"), "song" + i + ".mp3");
+			library.add(song);
+			expected.add(song);
+		}
+		library.registerListener(SongRemovedLibraryEvent.class, e -> removed.add((Song) e.getModifiedSong()));
+	}
+	
+	private void assertContents() {
+		assertEquals(expected.size(), library.size());
+		for (int i = 0; i < expected.size(); i++)
+			assertSame(expected.get(i), library.get(i));
+	}
+	
+	@Test
+	@DisplayName("Test 'remove' method of a given song after moving songs around")
+	public void testRemoveSong() {
+		Random random = new Random(13);
+		for (int step = 0; step < 150; step++) {
+			int from = random.nextInt(expected.size());
+			int to = random.nextInt(expected.size());
+			library.move(from, to);
+			expected.add(to, expected.remove(from));
+			
+			library.select(random.nextInt(expected.size()));
+			Song selected = library.getSelected();
+			Song song = expected.remove(random.nextInt(expected.size()));
+			library.remove(song);
+			assertContents();
+			assertFalse(library.contains(song.getFilename()));
+			assertSame(song, removed.get(removed.size() - 1));
+			if (song != selected)
+				assertSame(selected, library.getSelected());
+			else
+				assertFalse(library.someSelected());
+		}
+	}
+	
+	@Test
+	@DisplayName("Test 'removeAll' method keeps the order and the selection of the other songs")
+	public void testRemoveAll() {
+		library.select(101);
+		Song selected = library.getSelected();
+		List<Song> toRemove = new ArrayList<>();
+		for (int i = expected.size() - 1; i >= 0; i -= 3)
+			toRemove.add(expected.get(i));
+		toRemove.add(new Song(new SongMetaInfo("other", "genre", Arrays.asList("artist"), "album"), "other.mp3"));
+		
+		List<Song> inOrder = new ArrayList<>(expected);
+		inOrder.retainAll(toRemove);
+		expected.removeAll(toRemove);
+		library.removeAll(toRemove);
+		
+		assertContents();
+		assertEquals(inOrder, removed);
+		assertSame(selected, library.getSelected());
+		for (Song song : inOrder)
+			assertFalse(library.getSongById(song.getId()).isPresent());
+	}
+
+	@Test
+	@DisplayName("Test 'getMatches' method gives the same songs with any parallelism")
+	public void testParallelMatches() {
+		List<Song> songs = new ArrayList<>();
+		for (int i = 0; i < 20000; i++)
+			songs.add(new Song(new SongMetaInfo("many" + i, "genre", Arrays.asList("artist"), "album"), "many" + i + ".mp3"));
+		library.addAll(songs);
+		
+		List<ISong> sequential = new ArrayList<>();
+		for (Song song : songs)
+			if (song.matches("many.*7"))
+				sequential.add(song);
+		for (int parallelism : new int[] {1, 2, 3, 1000, Integer.MAX_VALUE}) {
+			List<ISong> parallel = new ArrayList<>();
+			library.getMatches("many.*7", parallelism).forEach(parallel::add);
+			assertEquals(sequential, parallel);
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package domain.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.facade.ISong;
+import domain.player.PlayerFactory;
+
+public class SongIndexTest {
+	
+	private static final String[] GENRES = {"rock", "jazz", "blues"};
+	
+	private Map<Integer, Song> songs;
+	private SongIndex index;
+
+	@BeforeEach
+	public void init() {
+		songs = new HashMap<>();
+		index = new SongIndex(songs::get);
+		for (int i = 0; i < 30; i++) {
+			Song song = song(i);
+			song.setId(i);
+			song.setRank(i);
+			songs.put(i, song);
+			index.add(song);
+		}
+	}
+	
+	private static Song song(int i) {
+		List<String> artists = Arrays.asList("artist" + i % 4);
+		return new Song(new SongMetaInfo("Title " + i, GENRES[i % 3], artists, "album" + i % 5), "song" + i + ".mp3");
+	}
+	
+	private static List<ISong> list(Iterable<ISong> songs) {
+		List<ISong> result = new ArrayList<>();
+		for (ISong song : songs)
+			result.add(song);
+		return result;
+	}
+	
+	private static List<ISong> expected(MusicLibrary library, String regexp) {
+		Pattern pattern = Pattern.compile(regexp);
+		List<ISong> result = new ArrayList<>();
+		for (Song song : library)
+			if (song.matches(pattern))
+				result.add(song);
+		return result;
+	}
+	
+	@Test
+	@DisplayName("Test 'term', 'prefix', 'allTerms' and 'anyTerm' methods")
+	public void testTerms() {
+		assertEquals(10, index.term("ROCK").size());
+		assertEquals(songs.get(0), index.term("rock").get(0));
+		assertEquals(30, index.prefix("artist").size());
+		assertEquals(List.of(songs.get(0), songs.get(12), songs.get(24)), index.allTerms("rock", "artist0"));
+		assertEquals(20, index.anyTerm("rock", "jazz", "none").size());
+		assertTrue(index.allTerms("rock", "none").isEmpty());
+	}
+	
+	@Test
+	@DisplayName("Test pruning the songs that cannot match a regex")
+	public void testCandidates() {
+		Optional<List<Song>> candidates = index.candidates(".*blues.*");
+		assertTrue(candidates.isPresent());
+		assertEquals(10, candidates.get().size());
+		for (Song song : candidates.get())
+			assertEquals("blues", song.getGenre());
+		
+		assertTrue(index.candidates("Title 1[0-9]").isPresent());
+		assertTrue(index.candidates("zzz").get().isEmpty());
+		assertFalse(index.candidates("ro").isPresent());
+		assertFalse(index.candidates("(rock|jazz)").isPresent());
+	}
+	
+	@Test
+	@DisplayName("Test removing and updating songs")
+	public void testRemoveUpdate() {
+		index.remove(songs.get(2));
+		assertEquals(9, index.candidates("blues").get().size());
+		
+		Song song = songs.get(5);
+		SongMetaInfo previous = song.getMetaInfo();
+		song.setMetaInfo(new SongMetaInfo("Other", "rock", previous.artists(), previous.album()));
+		index.update(song, previous);
+		assertEquals(8, index.candidates("blues").get().size());
+		assertTrue(index.term("rock").contains(song));
+		
+		songs.remove(8);
+		assertEquals(7, index.candidates("blues").get().size());
+	}
+	
+	@Test
+	@DisplayName("Test the order of the results after moving and removing songs")
+	public void testLibraryOrder() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		MusicLibrary library = new MusicLibrary();
+		for (int i = 0; i < 30; i++)
+			library.add(song(i));
+		library.move(25, 0);
+		library.move(2, 20);
+		library.move(10, 29);
+		library.remove(library.get(5));
+		
+		String[] searches = {".*blues.*", "blues", "Title 1.*", "ue", ".*"};
+		for (String regexp : searches) {
+			assertEquals(expected(library, regexp), list(library.getMatches(regexp)));
+			assertEquals(expected(library, regexp), library.streamMatches(regexp).toList());
+		}
+		assertEquals(expected(library, "(^|.*\\W)rock(\\W.*|$)"), list(library.getTermMatches("rock")));
+		assertEquals(expected(library, ".*blues.*"), list(library.getPrefixMatches("blu")));
+	}
+
+}
@@ -1,5 +1,6 @@
 package domain.core;
 
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -50,6 +51,18 @@ public class SongTest {
 		assertEquals(1, song.getRating().getRate());
 	}
 	
+	@Test
+	@DisplayName("Test rating bounds")
+	public void testRatingBounds() {
+		for (int i = 0; i < 10; i++)
+			song.incRating();
+		assertEquals(5, song.getRating().getRate());
+		assertTrue(song.getRating() == Rate.of(5));
+		for (int i = 0; i < 10; i++)
+			song.decRating();
+		assertEquals(1, song.getRating().getRate());
+	}
+	
 	@Test
 	@DisplayName("Test 'matches' method")
 	public void testMatches() {
@@ -64,4 +77,21 @@ public class SongTest {
 		
 	}
 
+	@Test
+	@DisplayName("Test 'interned' method shares the genre, album and artists")
+	public void testInterned() {
+		List<String> artists = new ArrayList<>();
+		artists.add("a1");
+		SongMetaInfo first = SongMetaInfo.interned("t1", new String("genreB"), artists, new String("albumB"));
+		SongMetaInfo second = SongMetaInfo.interned("t2", new String("genreB"), new ArrayList<>(artists), new String("albumB"));
+		assertSame(first.genre(), second.genre());
+		assertSame(first.album(), second.album());
+		assertSame(first.artists(), second.artists());
+		
+		artists.add("a2");
+		assertEquals(1, first.artists().size());
+		SongMetaInfo plain = new SongMetaInfo("t3", "genreB", artists, "albumB");
+		assertSame(artists, plain.artists());
+	}
+
 }
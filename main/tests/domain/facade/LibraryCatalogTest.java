@@ -0,0 +1,215 @@
+package domain.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.FileStamp;
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongRatedLibraryEvent;
+import domain.core.SongRemovedLibraryEvent;
+import domain.player.PlayerFactory;
+import domain.playlists.ManualPlaylist;
+import domain.playlists.Playlist;
+import domain.playlists.PlaylistList;
+
+public class LibraryCatalogTest {
+	
+	private static final int MAGIC = 0x4C454943;
+	private static final int SONGS = 12;
+	
+	private Path dir;
+	private Path catalog;
+	private MusicLibrary library;
+	private PlaylistList playlists;
+	
+	@BeforeEach
+	public void init() throws IOException {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		dir = Files.createTempDirectory("catalog");
+		catalog = dir.resolve("library.catalog");
+		library = new MusicLibrary();
+		playlists = new PlaylistList(library);
+		
+		for (int i = 0; i < SONGS; i++) {
+			List<String> artists = i % 4 == 0 ? Arrays.asList("artist" + i, "featuring" + i) : Arrays.asList("artist" + i);
+			String album = i == 5 ? null : "álbum" + i % 3;
+			Song song = new Song(new SongMetaInfo("título" + i, "genre" + i % 2, artists, album), "song" + i + ".mp3",
+								 Rate.of(i % 6), i * 3);
+			if (i % 3 != 0)
+				song.setFileStamp(new FileStamp(1000L + i, 1_600_000_000_000L + i));
+			library.add(song);
+			if (song.getRating().getRate() > 0)
+				library.emitEvent(new SongRatedLibraryEvent(song));
+		}
+		
+		Playlist mix = new ManualPlaylist("mix", library);
+		for (int i : new int[] {7, 2, 11, 0})
+			mix.add(library.getSongByFilename("song" + i + ".mp3").get());
+		playlists.add(mix);
+		playlists.add(new ManualPlaylist("empty", library));
+	}
+	
+	@AfterEach
+	public void cleanUp() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+				Files.delete(file);
+		}
+	}
+	
+	private static List<String> filenames(Playlist playlist) {
+		List<String> result = new ArrayList<>();
+		for (ISong song : playlist)
+			result.add(song.getFilename());
+		return result;
+	}
+	
+	private static Set<String> filenameSet(Playlist playlist) {
+		return new HashSet<>(filenames(playlist));
+	}
+	
+	private void assertSameSongs(MusicLibrary loaded, boolean withStamps) {
+		assertEquals(library.size(), loaded.size());
+		for (Song song : library) {
+			Song other = loaded.getSongByFilename(song.getFilename()).get();
+			assertEquals(song.getSongTitle(), other.getSongTitle());
+			assertEquals(song.getGenre(), other.getGenre());
+			assertEquals(song.getAlbum(), other.getAlbum());
+			assertEquals(song.getArtists(), other.getArtists());
+			assertEquals(song.getRating().getRate(), other.getRating().getRate());
+			assertEquals(song.getTimesPlayed(), other.getTimesPlayed());
+			if (withStamps)
+				assertEquals(song.getFileStamp(), other.getFileStamp());
+			else
+				assertNull(other.getFileStamp());
+		}
+	}
+	
+	private void assertSamePlaylists(PlaylistList loaded) {
+		assertEquals(playlists.size(), loaded.size());
+		for (int i = 0; i < playlists.size(); i++)
+			assertEquals(playlists.get(i).getName(), loaded.get(i).getName());
+		// the smart playlists are rebuilt from the loaded songs
+		assertEquals(filenameSet(playlists.get(0)), filenameSet(loaded.get(0)));
+		assertEquals(filenameSet(playlists.get(1)), filenameSet(loaded.get(1)));
+		for (int i = 2; i < playlists.size(); i++)
+			assertEquals(filenames(playlists.get(i)), filenames(loaded.get(i)));
+	}
+	
+	@Test
+	@DisplayName("Test saving and loading the songs, their stamps and the playlists")
+	public void testRoundTrip() throws IOException {
+		LibraryCatalog.save(library, playlists, catalog);
+		
+		MusicLibrary loaded = new MusicLibrary();
+		PlaylistList loadedPlaylists = new PlaylistList(loaded);
+		LibraryCatalog.load(catalog, loaded, loadedPlaylists);
+		
+		assertSameSongs(loaded, true);
+		assertSamePlaylists(loadedPlaylists);
+	}
+	
+	@Test
+	@DisplayName("Test loading a catalog written before the file stamps were saved")
+	public void testVersionWithoutStamps() throws IOException {
+		List<Song> songs = new ArrayList<>();
+		for (Song song : library)
+			songs.add(song);
+		
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(catalog)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(1);
+			out.writeInt(songs.size());
+			for (Song song : songs) {
+				LibraryCatalog.writeString(out, song.getFilename());
+				LibraryCatalog.writeString(out, song.getSongTitle());
+				LibraryCatalog.writeString(out, song.getAlbum());
+				LibraryCatalog.writeString(out, song.getGenre());
+				out.writeInt(song.getArtists().size());
+				for (String artist : song.getArtists())
+					LibraryCatalog.writeString(out, artist);
+				out.writeByte(song.getRating().getRate());
+				out.writeInt(song.getTimesPlayed());
+			}
+			out.writeInt(playlists.size() - 2);
+			for (int i = 2; i < playlists.size(); i++) {
+				Playlist playlist = playlists.get(i);
+				LibraryCatalog.writeString(out, playlist.getName());
+				out.writeInt(playlist.size());
+				for (ISong song : playlist)
+					out.writeInt(songs.indexOf(song));
+			}
+		}
+		
+		MusicLibrary loaded = new MusicLibrary();
+		PlaylistList loadedPlaylists = new PlaylistList(loaded);
+		LibraryCatalog.load(catalog, loaded, loadedPlaylists);
+		
+		assertSameSongs(loaded, false);
+		assertSamePlaylists(loadedPlaylists);
+	}
+	
+	@Test
+	@DisplayName("Test a truncated catalog is reported as an IOException")
+	public void testTruncated() throws IOException {
+		LibraryCatalog.save(library, playlists, catalog);
+		byte[] bytes = Files.readAllBytes(catalog);
+		Files.write(catalog, Arrays.copyOf(bytes, bytes.length / 2));
+		
+		MusicLibrary loaded = new MusicLibrary();
+		assertThrows(IOException.class, () -> LibraryCatalog.load(catalog, loaded, new PlaylistList(loaded)));
+	}
+
+	@Test
+	@DisplayName("Test saving while the playlists were not told of a removal yet")
+	public void testSaveDuringRemoval() throws IOException {
+		Song removed = library.getSongByFilename("song2.mp3").get();
+		List<IOException> failures = new ArrayList<>();
+		library.registerListener(e -> {
+			if (e instanceof SongRemovedLibraryEvent && e.getModifiedSong() == removed) {
+				try {
+					LibraryCatalog.save(library, playlists, catalog);
+				} catch (IOException ex) {
+					failures.add(ex);
+				}
+			}
+		});
+		library.remove(removed);
+		
+		assertEquals(0, failures.size());
+		assertFalse(filenames(playlists.get(2)).contains("song2.mp3"));
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(List.of(catalog), files.toList());
+		}
+		
+		MusicLibrary loaded = new MusicLibrary();
+		PlaylistList loadedPlaylists = new PlaylistList(loaded);
+		LibraryCatalog.load(catalog, loaded, loadedPlaylists);
+		assertEquals(SONGS - 1, loaded.size());
+		assertEquals(Arrays.asList("song7.mp3", "song11.mp3", "song0.mp3"), filenames(loadedPlaylists.get(2)));
+	}
+
+}
@@ -0,0 +1,259 @@
+package domain.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.Rate;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongPlayedLibraryEvent;
+import domain.core.SongRatedLibraryEvent;
+import domain.player.PlayerFactory;
+import domain.playlists.PlaylistList;
+
+public class LibraryJournalTest {
+	
+	private static final long TIMEOUT = 30_000;
+	
+	private Path dir;
+	private Path catalog;
+	private Path journalFile;
+	private MusicLibrary library;
+	private PlaylistList playlists;
+	private LibraryJournal journal;
+	
+	@BeforeEach
+	public void init() throws IOException {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		dir = Files.createTempDirectory("journal");
+		catalog = dir.resolve("library.catalog");
+		journalFile = dir.resolve("library.journal");
+		library = new MusicLibrary();
+		playlists = new PlaylistList(library);
+	}
+	
+	@AfterEach
+	public void cleanUp() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+				Files.delete(file);
+		}
+	}
+	
+	private static final int COMPACTION_THRESHOLD = 4096;
+	
+	private static Song song(int i) {
+		List<String> artists = Arrays.asList("artist" + i % 7);
+		return new Song(new SongMetaInfo("title" + i, "genre" + i % 3, artists, "album" + i % 5), "song" + i + ".mp3");
+	}
+	
+	/**
+	 * Opens the journal of a new library
+	 * 
+	 * @return the new library
+	 */
+	private MusicLibrary reopen() throws IOException {
+		library = new MusicLibrary();
+		playlists = new PlaylistList(library);
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		return library;
+	}
+	
+	@Test
+	@DisplayName("Test compaction while the events are delivered asynchronously")
+	public void testAsyncCompaction() throws Exception {
+		int songs = 5000;
+		library.setAsync(true);
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		
+		Thread changes = new Thread(() -> {
+			for (int i = 0; i < songs; i++) {
+				Song song = song(i);
+				library.add(song);
+				song.incRating();
+				library.emitEvent(new SongRatedLibraryEvent(song));
+			}
+		});
+		Thread compactions = new Thread(() -> {
+			try {
+				while (changes.isAlive())
+					journal.compact();
+				journal.close();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		changes.setDaemon(true);
+		compactions.setDaemon(true);
+		changes.start();
+		compactions.start();
+		changes.join(TIMEOUT);
+		compactions.join(TIMEOUT);
+		assertFalse(changes.isAlive());
+		assertFalse(compactions.isAlive());
+		
+		MusicLibrary reloaded = reopen();
+		assertEquals(songs, reloaded.size());
+		for (int i = 0; i < songs; i++)
+			assertEquals(1, reloaded.getSongByFilename("song" + i + ".mp3").get().getRating().getRate());
+		journal.close();
+	}
+
+	@Test
+	@DisplayName("Test the changes are replayed when the journal was not closed")
+	public void testReplay() throws IOException {
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		for (int i = 0; i < 10; i++)
+			library.add(song(i));
+		Song rated = library.getSongByFilename("song3.mp3").get();
+		rated.setRating(Rate.of(4));
+		library.emitEvent(new SongRatedLibraryEvent(rated));
+		Song played = library.getSongByFilename("song5.mp3").get();
+		played.incTimesPlayed();
+		played.incTimesPlayed();
+		library.emitEvent(new SongPlayedLibraryEvent(played));
+		library.remove(library.getSongByFilename("song7.mp3").get());
+		journal.flush();
+		LibraryJournal crashed = journal;
+		
+		MusicLibrary reloaded = reopen();
+		assertFalse(Files.exists(catalog));
+		assertEquals(9, reloaded.size());
+		assertFalse(reloaded.contains("song7.mp3"));
+		assertEquals(4, reloaded.getSongByFilename("song3.mp3").get().getRating().getRate());
+		assertEquals(2, reloaded.getSongByFilename("song5.mp3").get().getTimesPlayed());
+		journal.close();
+		crashed.close();
+	}
+	
+	@Test
+	@DisplayName("Test a truncated or corrupted record and the ones after it are discarded")
+	public void testCorruptedRecords() throws IOException {
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		for (int i = 0; i < 3; i++)
+			library.add(song(i));
+		journal.flush();
+		LibraryJournal crashed = journal;
+		long valid = Files.size(journalFile);
+		
+		// a record whose checksum does not match, then one cut short
+		byte[] tail = {0, 0, 0, 4, 1, 2, 3, 4, 9, 9, 9, 9, 0, 0, 0, 100, 0, 0, 0, 0, 1};
+		Files.write(journalFile, tail, StandardOpenOption.APPEND);
+		
+		MusicLibrary reloaded = reopen();
+		assertEquals(3, reloaded.size());
+		assertEquals(valid, Files.size(journalFile));
+		
+		reloaded.add(song(3));
+		journal.flush();
+		reopen();
+		assertEquals(4, library.size());
+		journal.close();
+		crashed.close();
+	}
+	
+	@Test
+	@DisplayName("Test the changes made by several threads are on disk once flushed")
+	public void testGroupCommit() throws Exception {
+		int threads = 8;
+		int songs = 200;
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int first = t * songs;
+			Thread writer = new Thread(() -> {
+				for (int i = first; i < first + songs; i++) {
+					Song song = song(i);
+					library.add(song);
+					song.incRating();
+					library.emitEvent(new SongRatedLibraryEvent(song));
+				}
+			});
+			writer.setDaemon(true);
+			writers.add(writer);
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join(TIMEOUT);
+			assertFalse(writer.isAlive());
+		}
+		journal.flush();
+		LibraryJournal crashed = journal;
+		
+		MusicLibrary reloaded = reopen();
+		assertEquals(threads * songs, reloaded.size());
+		for (int i = 0; i < threads * songs; i++)
+			assertEquals(1, reloaded.getSongByFilename("song" + i + ".mp3").get().getRating().getRate());
+		journal.close();
+		crashed.close();
+	}
+	
+	@Test
+	@DisplayName("Test the journal is saved in the catalog and emptied once it has enough records")
+	public void testCompaction() throws IOException {
+		journal = LibraryJournal.open(catalog, journalFile, library, playlists);
+		List<Song> songs = new ArrayList<>();
+		for (int i = 0; i < COMPACTION_THRESHOLD; i++)
+			songs.add(song(i));
+		library.addAll(songs);
+		journal.flush();
+		assertTrue(Files.exists(catalog));
+		assertEquals(0, Files.size(journalFile));
+		
+		library.add(song(COMPACTION_THRESHOLD));
+		journal.flush();
+		assertTrue(Files.size(journalFile) > 0);
+		LibraryJournal crashed = journal;
+		
+		MusicLibrary reloaded = reopen();
+		assertEquals(COMPACTION_THRESHOLD + 1, reloaded.size());
+		journal.close();
+		crashed.close();
+	}
+	
+	@Test
+	@DisplayName("Test a failure of the journal is kept and reported by the controller")
+	public void testFailure() throws IOException {
+		Path unwritable = dir.resolve("missing").resolve("library.catalog");
+		journal = LibraryJournal.open(unwritable, journalFile, library, playlists);
+		MusicLibraryController controller = new MusicLibraryController(library);
+		controller.setJournal(journal);
+		assertFalse(controller.getJournalFailure().isPresent());
+		
+		List<Song> songs = new ArrayList<>();
+		for (int i = 0; i < COMPACTION_THRESHOLD; i++)
+			songs.add(song(i));
+		library.addAll(songs);
+		library.add(song(COMPACTION_THRESHOLD));
+		assertEquals(COMPACTION_THRESHOLD + 1, library.size());
+		assertTrue(controller.getJournalFailure().isPresent());
+		assertThrows(IOException.class, () -> journal.close());
+		
+		MusicLibrary reloaded = reopen();
+		assertEquals(COMPACTION_THRESHOLD + 1, reloaded.size());
+		journal.close();
+		assertTrue(Files.exists(catalog));
+		assertEquals(0, Files.size(journalFile));
+	}
+
+}
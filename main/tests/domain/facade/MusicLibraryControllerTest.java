@@ -0,0 +1,199 @@
+package domain.facade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongBatchAddedLibraryEvent;
+import domain.player.PlayerFactory;
+
+public class MusicLibraryControllerTest {
+	
+	private static final int V1_TAG_SIZE = 128;
+	private static final int ROCK = 17;
+	private static final int IMPORT_BATCH_SIZE = 512;
+	
+	private Path dir;
+	private MusicLibrary library;
+	private MusicLibraryController controller;
+
+	@BeforeEach
+	public void init() throws IOException {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		dir = Files.createTempDirectory("songs");
+		library = new MusicLibrary();
+		controller = new MusicLibraryController(library);
+	}
+	
+	@AfterEach
+	public void cleanUp() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+				Files.delete(file);
+		}
+	}
+	
+	/**
+	 * Writes an mp3 file with some bytes of audio and an ID3v1 tag with the given title
+	 */
+	private static Path writeSong(Path file, String title) throws IOException {
+		byte[] bytes = new byte[64 + V1_TAG_SIZE];
+		int tag = bytes.length - V1_TAG_SIZE;
+		System.arraycopy("TAG".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, tag, 3);
+		byte[] text = title.getBytes(StandardCharsets.ISO_8859_1);
+		System.arraycopy(text, 0, bytes, tag + 3, text.length);
+		System.arraycopy("artist".getBytes(StandardCharsets.ISO_8859_1), 0, bytes, tag + 33, 6);
+		bytes[bytes.length - 1] = ROCK;
+		Files.createDirectories(file.getParent());
+		return Files.write(file, bytes);
+	}
+	
+	/**
+	 * Writes a file with an ID3v2.3 header with the given flags and size, followed by
+	 * the given bytes
+	 */
+	private static Path writeHeader(Path file, int flags, int size, byte... body) throws IOException {
+		byte[] bytes = new byte[10 + body.length];
+		bytes[0] = 'I';
+		bytes[1] = 'D';
+		bytes[2] = '3';
+		bytes[3] = 3;
+		bytes[5] = (byte) flags;
+		for (int i = 0; i < 4; i++)
+			bytes[6 + i] = (byte) (size >> (7 * (3 - i)) & 0x7F);
+		System.arraycopy(body, 0, bytes, 10, body.length);
+		return Files.write(file, bytes);
+	}
+	
+	@Test
+	@DisplayName("Test importing files with malformed tags")
+	public void testMalformedTags() throws IOException {
+		writeSong(dir.resolve("a.mp3"), "first");
+		writeHeader(dir.resolve("b.mp3"), 0x40, 2, (byte) 0, (byte) 0);
+		writeHeader(dir.resolve("c.mp3"), 0, 0x0FFFFFFF, "TIT2".getBytes(StandardCharsets.ISO_8859_1));
+		writeHeader(dir.resolve("d.mp3"), 0x40, 4, (byte) 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF);
+		writeSong(dir.resolve("e.mp3"), "last");
+		
+		ImportReport report = controller.addSongs(dir);
+		assertEquals(5, report.getAdded() + report.getSkipped() + report.getErrors().size());
+		assertTrue(library.contains(dir.resolve("a.mp3").toString()));
+		assertTrue(library.contains(dir.resolve("e.mp3").toString()));
+		
+		ImportReport rescanned = controller.rescan(dir);
+		assertEquals(0, rescanned.getErrors().size());
+	}
+	
+	@Test
+	@DisplayName("Test 'rescan' method after importing by a relative path")
+	public void testRescanRelativePath() throws IOException {
+		for (int i = 0; i < 5; i++)
+			writeSong(dir.resolve("album").resolve("song" + i + ".mp3"), "title" + i);
+		Path relative = Paths.get("").toAbsolutePath().relativize(dir);
+		
+		ImportReport imported = controller.addSongs(relative);
+		assertEquals(5, imported.getAdded());
+		assertEquals(5, library.size());
+		
+		ImportReport rescanned = controller.rescan(dir.toAbsolutePath());
+		assertEquals(0, rescanned.getAdded());
+		assertEquals(0, rescanned.getRemoved());
+		assertEquals(5, rescanned.getSkipped());
+		assertEquals(5, library.size());
+		
+		controller.addSong(dir.resolve("album/../album/song0.mp3").toString());
+		assertEquals(5, library.size());
+		assertTrue(library.contains(relative.resolve("album/song3.mp3").toString()));
+	}
+
+	@Test
+	@DisplayName("Test importing more files than fit in a batch")
+	public void testImportBatches() throws IOException {
+		int songs = 2 * IMPORT_BATCH_SIZE + 100;
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < songs; i++)
+			files.add(writeSong(dir.resolve(String.format("song%04d.mp3", i)), "title" + i));
+		Path untagged = Files.write(dir.resolve("untagged.mp3"), new byte[V1_TAG_SIZE]);
+		Path missing = dir.resolve("missing.mp3");
+		controller.addSong(files.get(0).toString());
+		files.add(untagged);
+		files.add(missing);
+		files.add(files.get(1));
+		
+		List<Integer> batches = new ArrayList<>();
+		library.registerListener(e -> {
+			if (e instanceof SongBatchAddedLibraryEvent batch)
+				batches.add(batch.getAddedSongs().size());
+		});
+		List<Integer> progress = new ArrayList<>();
+		ImportReport report = controller.addSongs(files, (processed, total) -> {
+			assertEquals(files.size(), total);
+			progress.add(processed);
+		});
+		library.flush();
+		
+		// the song already in the library and the repeated file are skipped without being read
+		int read = files.size() - 2;
+		int expectedBatches = (read + IMPORT_BATCH_SIZE - 1) / IMPORT_BATCH_SIZE;
+		assertEquals(expectedBatches, progress.size());
+		for (int i = 1; i < progress.size(); i++)
+			assertTrue(progress.get(i - 1) < progress.get(i));
+		assertEquals(files.size(), (int) progress.get(progress.size() - 1));
+		assertEquals(expectedBatches, batches.size());
+		assertEquals(IMPORT_BATCH_SIZE, (int) batches.get(0));
+		
+		assertEquals(songs - 1, report.getAdded());
+		assertEquals(3, report.getSkipped());
+		assertEquals(1, report.getErrors().size());
+		assertTrue(report.getErrors().containsKey(missing));
+		assertEquals(0, report.getUpdated());
+		assertEquals(0, report.getRemoved());
+		
+		assertEquals(songs, library.size());
+		int i = 0;
+		for (Song song : library)
+			assertEquals(files.get(i++).toString(), song.getFilename());
+	}
+	
+	@Test
+	@DisplayName("Test the report of a rescan")
+	public void testRescanReport() throws IOException {
+		for (int i = 0; i < 6; i++)
+			writeSong(dir.resolve("song" + i + ".mp3"), "title" + i);
+		assertEquals(6, controller.addSongs(dir).getAdded());
+		
+		Path changed = writeSong(dir.resolve("song2.mp3"), "changed");
+		Files.setLastModifiedTime(changed, FileTime.fromMillis(Files.getLastModifiedTime(changed).toMillis() + 60_000));
+		Files.delete(dir.resolve("song4.mp3"));
+		writeSong(dir.resolve("song9.mp3"), "new");
+		
+		ImportReport report = controller.rescan(dir);
+		assertEquals(1, report.getAdded());
+		assertEquals(1, report.getUpdated());
+		assertEquals(1, report.getRemoved());
+		assertEquals(4, report.getSkipped());
+		assertEquals(0, report.getErrors().size());
+		
+		assertEquals(6, library.size());
+		assertFalse(library.contains(dir.resolve("song4.mp3").toString()));
+		assertEquals("changed", library.getSongByFilename(changed.toString()).get().getSongTitle());
+	}
+
+}
@@ -0,0 +1,105 @@
+package domain.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PlayerFactoryTest {
+	
+	private static final String TEST = "test";
+	
+	private AtomicInteger created;
+	
+	@BeforeEach
+	public void init() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		created = new AtomicInteger();
+		PlayerFactory.INSTANCE.registerPlayer(TEST, () -> {
+			created.incrementAndGet();
+			return new SimulatedPlayer();
+		});
+	}
+	
+	@AfterEach
+	public void cleanUp() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+	}
+	
+	@Test
+	@DisplayName("Test a registered player is only created when first needed")
+	public void testLazyCreation() {
+		assertTrue(PlayerFactory.INSTANCE.getPlayerNames().contains(TEST));
+		assertTrue(PlayerFactory.INSTANCE.usePlayer(TEST));
+		assertEquals(TEST, PlayerFactory.INSTANCE.getPlayerName());
+		assertEquals(0, created.get());
+		
+		Player player = PlayerFactory.INSTANCE.getPlayer();
+		assertSame(player, PlayerFactory.INSTANCE.getPlayer());
+		assertEquals(1, created.get());
+		
+		assertTrue(PlayerFactory.INSTANCE.usePlayer(TEST));
+		assertSame(player, PlayerFactory.INSTANCE.getPlayer());
+		assertEquals(1, created.get());
+	}
+	
+	@Test
+	@DisplayName("Test registering a player again with the name of the chosen one")
+	public void testRegisterChosen() {
+		PlayerFactory.INSTANCE.usePlayer(TEST);
+		Player player = PlayerFactory.INSTANCE.getPlayer();
+		
+		SimulatedPlayer replacement = new SimulatedPlayer();
+		PlayerFactory.INSTANCE.registerPlayer(TEST, () -> replacement);
+		assertNotSame(player, PlayerFactory.INSTANCE.getPlayer());
+		assertSame(replacement, PlayerFactory.INSTANCE.getPlayer());
+	}
+	
+	@Test
+	@DisplayName("Test choosing a player that was not registered")
+	public void testUseUnknown() {
+		assertFalse(PlayerFactory.INSTANCE.usePlayer("unknown"));
+		assertEquals(PlayerFactory.SIMULATED, PlayerFactory.INSTANCE.getPlayerName());
+		assertTrue(PlayerFactory.INSTANCE.getPlayer() instanceof SimulatedPlayer);
+		assertFalse(PlayerFactory.INSTANCE.getPlayerNames().contains("unknown"));
+	}
+
+	@Test
+	@DisplayName("Test switching between players keeps the players created")
+	public void testSwitchKeepsPlayers() {
+		PlayerFactory.INSTANCE.usePlayer(TEST);
+		Player player = PlayerFactory.INSTANCE.getPlayer();
+		Player simulated = null;
+		for (int i = 0; i < 10; i++) {
+			PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+			simulated = simulated == null ? PlayerFactory.INSTANCE.getPlayer() : simulated;
+			assertSame(simulated, PlayerFactory.INSTANCE.getPlayer());
+			PlayerFactory.INSTANCE.usePlayer(TEST);
+			assertSame(player, PlayerFactory.INSTANCE.getPlayer());
+		}
+		assertEquals(1, created.get());
+	}
+	
+	@Test
+	@DisplayName("Test a simulated player replaced by a new registration is shut down")
+	public void testReplacedShutDown() throws InterruptedException {
+		PlayerFactory.INSTANCE.usePlayer(TEST);
+		SimulatedPlayer replaced = (SimulatedPlayer) PlayerFactory.INSTANCE.getPlayer();
+		PlayerFactory.INSTANCE.registerPlayer(TEST, SimulatedPlayer::new);
+		
+		replaced.setTrackLength(0);
+		replaced.load("song.mp3");
+		replaced.play();
+		Thread.sleep(50);
+		assertEquals(0, replaced.getSongsEnded());
+	}
+
+}
@@ -0,0 +1,103 @@
+package domain.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SimulatedPlayerTest {
+	
+	private static final long TIMEOUT = 5000;
+	private static final long TRACK_LENGTH = 1000;
+	private static final double SPEED = 10;
+	
+	private SimulatedPlayer player;
+	private CountDownLatch ended;
+	private CountDownLatch stopped;
+	
+	@BeforeEach
+	public void init() {
+		player = new SimulatedPlayer(TRACK_LENGTH, SPEED);
+		ended = new CountDownLatch(1);
+		stopped = new CountDownLatch(1);
+		player.addListener(e -> {
+			if (e.getNewValue() == Player.PlayingState.ENDED)
+				ended.countDown();
+			else if (e.getNewValue() == Player.PlayingState.STOPED)
+				stopped.countDown();
+		});
+	}
+	
+	private static long millisSince(long start) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+	
+	@Test
+	@DisplayName("Test a song ends after its length at the speed of the simulated clock")
+	public void testEnd() throws InterruptedException {
+		player.load("song.mp3");
+		long start = System.nanoTime();
+		player.play();
+		assertTrue(ended.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertTrue(millisSince(start) >= (long) (TRACK_LENGTH / SPEED));
+		assertEquals(1, player.getSongsEnded());
+		assertEquals(0, player.getSongsStopped());
+	}
+	
+	@Test
+	@DisplayName("Test a paused song keeps the time it has left")
+	public void testPause() throws InterruptedException {
+		long paused = 200;
+		player.load("song.mp3");
+		long start = System.nanoTime();
+		player.play();
+		Thread.sleep(20);
+		player.still();
+		Thread.sleep(paused);
+		assertEquals(0, player.getSongsEnded());
+		
+		player.play();
+		assertTrue(ended.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertTrue(millisSince(start) >= (long) (TRACK_LENGTH / SPEED) + paused);
+		assertEquals(1, player.getSongsEnded());
+	}
+	
+	@Test
+	@DisplayName("Test stopping a song notifies the listeners and does not end it")
+	public void testStop() throws InterruptedException {
+		player.load("song.mp3");
+		player.play();
+		player.stop();
+		assertTrue(stopped.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		Thread.sleep(2 * (long) (TRACK_LENGTH / SPEED));
+		assertEquals(0, player.getSongsEnded());
+		assertEquals(1, player.getSongsStopped());
+	}
+	
+	@Test
+	@DisplayName("Test songs end at once with an infinite speed")
+	public void testInfiniteSpeed() throws InterruptedException {
+		int songs = 1000;
+		CountDownLatch all = new CountDownLatch(songs);
+		player.setSpeed(Double.POSITIVE_INFINITY);
+		player.addListener(e -> {
+			if (e.getNewValue() == Player.PlayingState.ENDED) {
+				all.countDown();
+				if (all.getCount() > 0) {
+					player.load("song.mp3");
+					player.play();
+				}
+			}
+		});
+		player.load("song.mp3");
+		player.play();
+		assertTrue(all.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		assertEquals(songs, player.getSongsEnded());
+	}
+
+}
@@ -0,0 +1,85 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.facade.ISong;
+import domain.player.PlayerFactory;
+
+public class ManualPlaylistTest {
+	
+	private MusicLibrary library;
+	private ManualPlaylist playlist;
+	private List<ISong> expected;
+
+	@BeforeEach
+	public void init() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		library = new MusicLibrary();
+		playlist = new ManualPlaylist("manual", library);
+		expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			Song song = new Song(new SongMetaInfo("title" + i, "genre", Arrays.asList("artist"), "album"), "song" + i + ".mp3");
+			library.add(song);
+			playlist.add(song);
+			expected.add(song);
+		}
+	}
+	
+	private List<ISong> contents() {
+		List<ISong> result = new ArrayList<>();
+		for (ISong song : playlist)
+			result.add(song);
+		return result;
+	}
+	
+	@Test
+	@DisplayName("Test removing songs of the library after moving them in the playlist")
+	public void testMoveAndRemove() {
+		Random random = new Random(7);
+		for (int step = 0; step < 40; step++) {
+			int from = random.nextInt(expected.size());
+			int to = random.nextInt(expected.size());
+			playlist.move(from, to);
+			expected.add(to, expected.remove(from));
+			
+			int[] rows = {random.nextInt(expected.size()), random.nextInt(expected.size())};
+			if (rows[0] != rows[1] && expected.size() > 2) {
+				int first = Math.min(rows[0], rows[1]);
+				List<ISong> moved = new ArrayList<>(Arrays.asList(expected.get(first), expected.get(Math.max(rows[0], rows[1]))));
+				expected.removeAll(moved);
+				int at = random.nextInt(expected.size() + 1);
+				playlist.moveRows(rows, at);
+				expected.addAll(at, moved);
+			}
+			
+			if (step % 2 == 0) {
+				ISong removed = expected.remove(random.nextInt(expected.size()));
+				playlist.select(0);
+				ISong selected = expected.isEmpty() || removed == playlist.getSelected() ? null : playlist.getSelected();
+				library.remove((Song) removed);
+				if (selected != null)
+					assertSame(selected, playlist.getSelected());
+			}
+			assertEquals(expected, contents());
+		}
+		Collections.reverse(expected);
+		for (ISong song : expected)
+			library.remove((Song) song);
+		assertEquals(0, playlist.size());
+	}
+
+}
@@ -0,0 +1,139 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Rate;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongRatedLibraryEvent;
+import domain.facade.ISong;
+import domain.player.PlayerFactory;
+
+public class MostLikedSongsPlaylistTest {
+	
+	private static final int N = 5;
+	
+	private MusicLibrary library;
+	private MostLikedSongsPlaylist playlist;
+	private List<Song> songs;
+	private Map<ISong, Integer> lastRated;
+	private Map<ISong, Rate> ratedAs;
+	private int ratings;
+
+	@BeforeEach
+	public void init() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		library = new MusicLibrary();
+		playlist = new MostLikedSongsPlaylist(library, N);
+		songs = new ArrayList<>();
+		lastRated = new HashMap<>();
+		ratedAs = new HashMap<>();
+		ratings = 0;
+		for (int i = 0; i < 30; i++) {
+			Song song = new Song(new SongMetaInfo("title" + i, "genre", Arrays.asList("artist"), "album"), "song" + i + ".mp3");
+			library.add(song);
+			songs.add(song);
+		}
+	}
+	
+	private void rate(Song song, int rate) {
+		song.setRating(Rate.of(rate));
+		deliver(song);
+	}
+	
+	/**
+	 * Delivers the rating event of a song whose rate was already changed
+	 */
+	private void deliver(Song song) {
+		lastRated.put(song, ++ratings);
+		ratedAs.put(song, song.getRating());
+		library.emitEvent(new SongRatedLibraryEvent(song));
+	}
+	
+	/**
+	 * Returns the N rated songs with the highest rates when their ratings were delivered,
+	 * the most recently rated first among songs with the same rate
+	 */
+	private Set<ISong> mostLiked() {
+		List<ISong> rated = new ArrayList<>(lastRated.keySet());
+		rated.sort(Comparator.comparing((ISong song) -> ratedAs.get(song)).thenComparing(lastRated::get).reversed());
+		return new HashSet<>(rated.subList(0, Math.min(N, rated.size())));
+	}
+	
+	private Set<ISong> contents() {
+		Set<ISong> result = new HashSet<>();
+		for (ISong song : playlist)
+			result.add(song);
+		return result;
+	}
+	
+	@Test
+	@DisplayName("Test a song rated higher than the lowest song of a full playlist takes its place")
+	public void testReplaceLowest() {
+		for (int i = 0; i < N; i++)
+			rate(songs.get(i), 3);
+		rate(songs.get(N), 2);
+		assertEquals(mostLiked(), contents());
+		
+		rate(songs.get(N), 4);
+		assertEquals(N, playlist.size());
+		assertTrue(contents().contains(songs.get(N)));
+		assertEquals(mostLiked(), contents());
+		
+		rate(songs.get(N), 1);
+		assertEquals(N, playlist.size());
+		assertEquals(mostLiked(), contents());
+	}
+	
+	@Test
+	@DisplayName("Test random rates and removals against the expected most liked songs")
+	public void testRandomRebalance() {
+		Random random = new Random(5);
+		for (int step = 0; step < 2000; step++) {
+			if (random.nextInt(20) == 0 && songs.size() > 1) {
+				Song removed = songs.remove(random.nextInt(songs.size()));
+				library.remove(removed);
+				lastRated.remove(removed);
+				ratedAs.remove(removed);
+			} else
+				rate(songs.get(random.nextInt(songs.size())), 1 + random.nextInt(5));
+			assertEquals(mostLiked(), contents());
+		}
+	}
+
+	@Test
+	@DisplayName("Test songs rated again before their events are delivered keep the heaps ordered")
+	public void testPendingRatings() {
+		Random random = new Random(17);
+		List<Song> pending = new ArrayList<>();
+		for (int step = 0; step < 3000; step++) {
+			Song song = songs.get(random.nextInt(songs.size()));
+			if (random.nextBoolean()) {
+				// the rate changes now, but its event is only delivered later
+				song.setRating(Rate.of(1 + random.nextInt(5)));
+				pending.add(song);
+			} else
+				rate(song, 1 + random.nextInt(5));
+			if (!pending.isEmpty() && random.nextInt(4) == 0)
+				deliver(pending.remove(random.nextInt(pending.size())));
+			assertEquals(mostLiked(), contents());
+		}
+	}
+
+}
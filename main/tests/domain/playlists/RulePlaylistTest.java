@@ -0,0 +1,167 @@
+package domain.playlists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.core.MusicLibrary;
+import domain.core.Song;
+import domain.core.SongMetaInfo;
+import domain.core.SongRatedLibraryEvent;
+import domain.facade.ISong;
+import domain.player.PlayerFactory;
+
+public class RulePlaylistTest {
+	
+	private static final Comparator<ISong> MOST_PLAYED = Comparator.comparingInt(ISong::getTimesPlayed).reversed();
+	
+	private MusicLibrary library;
+	private List<Song> songs;
+
+	@BeforeEach
+	public void init() {
+		PlayerFactory.INSTANCE.usePlayer(PlayerFactory.SIMULATED);
+		library = new MusicLibrary();
+		songs = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Song song = song(i);
+			songs.add(song);
+			library.add(song);
+		}
+	}
+	
+	private static Song song(int i) {
+		List<String> artists = Arrays.asList("artist" + i);
+		return new Song(new SongMetaInfo("title" + i, i % 2 == 0 ? "rock" : "jazz", artists, "album"), "song" + i + ".mp3");
+	}
+	
+	private static List<ISong> contents(Playlist playlist) {
+		List<ISong> result = new ArrayList<>();
+		for (ISong song : playlist)
+			result.add(song);
+		return result;
+	}
+	
+	private static List<ISong> list(Song... songs) {
+		return new ArrayList<>(Arrays.asList(songs));
+	}
+	
+	@Test
+	@DisplayName("Test the songs of a new playlist")
+	public void testCreate() {
+		RulePlaylist rock = new RulePlaylist("rock", library, SongRule.genre("rock"));
+		assertEquals(list(songs.get(0), songs.get(2), songs.get(4), songs.get(6), songs.get(8)), contents(rock));
+		assertFalse(rock.someSelected());
+	}
+	
+	@Test
+	@DisplayName("Test adding and removing songs of the library")
+	public void testAddRemove() {
+		RulePlaylist rock = new RulePlaylist("rock", library, SongRule.genre("rock"));
+		Song added = song(10);
+		library.add(added);
+		library.add(song(11));
+		assertEquals(6, rock.size());
+		assertSame(added, contents(rock).get(5));
+		
+		library.remove(songs.get(2));
+		assertEquals(list(songs.get(0), songs.get(4), songs.get(6), songs.get(8), added), contents(rock));
+		assertFalse(rock.inPlaylist(songs.get(2)));
+	}
+	
+	@Test
+	@DisplayName("Test the order of the library after moving a song")
+	public void testLibraryMove() {
+		RulePlaylist rock = new RulePlaylist("rock", library, SongRule.genre("rock"));
+		library.move(8, 0);
+		assertEquals(list(songs.get(8), songs.get(0), songs.get(2), songs.get(4), songs.get(6)), contents(rock));
+		library.move(0, 9);
+		library.move(2, 0);
+		assertEquals(list(songs.get(2), songs.get(0), songs.get(4), songs.get(6), songs.get(8)), contents(rock));
+	}
+	
+	@Test
+	@DisplayName("Test the given order and limit")
+	public void testOrderAndLimit() {
+		RulePlaylist top = new RulePlaylist("top", library, SongRule.any(), MOST_PLAYED, 3);
+		assertEquals(list(songs.get(0), songs.get(1), songs.get(2)), contents(top));
+		
+		library.incTimesPlayed(songs.get(9));
+		assertEquals(list(songs.get(9), songs.get(0), songs.get(1)), contents(top));
+		library.incTimesPlayed(songs.get(5));
+		library.incTimesPlayed(songs.get(5));
+		assertEquals(list(songs.get(5), songs.get(9), songs.get(0)), contents(top));
+		
+		library.remove(songs.get(9));
+		assertEquals(list(songs.get(5), songs.get(0), songs.get(1)), contents(top));
+	}
+	
+	@Test
+	@DisplayName("Test the selected song while the playlist changes")
+	public void testSelection() {
+		RulePlaylist rock = new RulePlaylist("rock", library, SongRule.genre("rock").and(SongRule.rateAtLeast(2)));
+		for (int i = 0; i < 10; i += 2) {
+			songs.get(i).incRating();
+			songs.get(i).incRating();
+			library.emitEvent(new SongRatedLibraryEvent(songs.get(i)));
+		}
+		rock.select(2);
+		
+		library.move(6, 0);
+		assertSame(songs.get(4), rock.getSelected());
+		songs.get(0).decRating();
+		library.emitEvent(new SongRatedLibraryEvent(songs.get(0)));
+		assertSame(songs.get(4), rock.getSelected());
+		assertEquals(4, rock.size());
+		
+		songs.get(4).decRating();
+		library.emitEvent(new SongRatedLibraryEvent(songs.get(4)));
+		assertFalse(rock.inPlaylist(songs.get(4)));
+		assertEquals(list(songs.get(6), songs.get(2), songs.get(8)), contents(rock));
+	}
+	
+	@Test
+	@DisplayName("Test random changes against the songs expected")
+	public void testRandomChanges() {
+		Random random = new Random(13);
+		SongRule rule = SongRule.genre("rock").or(SongRule.playedAtLeast(2));
+		RulePlaylist top = new RulePlaylist("top", library, rule, MOST_PLAYED, 4);
+		RulePlaylist all = new RulePlaylist("all", library, rule);
+		int next = songs.size();
+		
+		for (int step = 0; step < 500; step++) {
+			int action = random.nextInt(5);
+			if (action == 0 || action == 4) {
+				Song song = song(next++);
+				songs.add(song);
+				library.add(song);
+			} else if (action == 1 && library.size() > 1)
+				library.move(random.nextInt(library.size()), random.nextInt(library.size()));
+			else if (action == 2 && library.size() > 1)
+				library.remove(library.get(random.nextInt(library.size())));
+			else if (action == 3)
+				library.incTimesPlayed(library.get(random.nextInt(library.size())));
+			
+			List<ISong> expected = new ArrayList<>();
+			for (Song song : library)
+				if (rule.test(song))
+					expected.add(song);
+			assertEquals(expected, contents(all));
+			expected.sort(MOST_PLAYED);
+			assertEquals(expected.subList(0, Math.min(4, expected.size())), contents(top));
+		}
+		assertTrue(all.size() > 0);
+	}
+
+}
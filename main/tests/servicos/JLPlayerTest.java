@@ -0,0 +1,158 @@
+package servicos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.PropertyChangeListener;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import domain.player.Player;
+import javazoom.jl.player.AudioDeviceBase;
+
+public class JLPlayerTest {
+
+	private static final long TIMEOUT = 5000;
+	private static final int FRAMES = 10;
+	private static final int PREDECODED = 4;
+	private static final int FRAME_LENGTH = 417;
+
+	private CountDownLatch ended;
+	private AtomicInteger stopped;
+	private Player listener;
+
+	/**
+	 * An audio device that counts the frames written to it
+	 */
+	private static class CountingDevice extends AudioDeviceBase {
+
+		private final AtomicInteger frames = new AtomicInteger();
+
+		@Override
+		protected void writeImpl(short[] samples, int offs, int len) {
+			frames.incrementAndGet();
+		}
+
+		@Override
+		public int getPosition() {
+			return 0;
+		}
+
+		int frames() {
+			return frames.get();
+		}
+	}
+
+	/**
+	 * Builds a silent mp3 song of MPEG-1 layer III frames at 44100 Hz
+	 *
+	 * @param frames the number of frames
+	 * @param stereo whether the song has two channels or one
+	 * @return the stream of the song
+	 */
+	private static InputStream silence(int frames, boolean stereo) {
+		byte[] song = new byte[frames * FRAME_LENGTH];
+		for (int i = 0; i < frames; i++) {
+			int start = i * FRAME_LENGTH;
+			song[start] = (byte) 0xFF;
+			song[start + 1] = (byte) 0xFB;
+			song[start + 2] = (byte) 0x90;
+			song[start + 3] = (byte) (stereo ? 0x00 : 0xC0);
+		}
+		return new ByteArrayInputStream(song);
+	}
+
+	/**
+	 * Waits until the given number of songs ended, for at most TIMEOUT milliseconds
+	 *
+	 * @param songs the number of songs
+	 * @return true if that many songs ended in time
+	 */
+	private boolean awaitEnded(int songs) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (2 - ended.getCount() < songs && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		return 2 - ended.getCount() >= songs;
+	}
+
+	@BeforeEach
+	public void init() {
+		ended = new CountDownLatch(2);
+		stopped = new AtomicInteger();
+		listener = new Player() {
+			public boolean load(String filename) { return false; }
+			public void play() { }
+			public void still() { }
+			public void stop() { }
+			public void hasStopedSong() { stopped.incrementAndGet(); }
+			public void hasEndedSong() { ended.countDown(); }
+			public void addListener(PropertyChangeListener listener) { }
+			public void removeListener(PropertyChangeListener listener) { }
+		};
+	}
+
+	@Test
+	@DisplayName("Test the next song is written to the same device right after the last frame")
+	public void testHandOverDevice() throws Exception {
+		CountingDevice first = new CountingDevice();
+		CountingDevice second = new CountingDevice();
+		JLPlayer current = new JLPlayer(silence(FRAMES, true), first, listener);
+		JLPlayer next = new JLPlayer(silence(FRAMES, true), second, listener);
+		next.predecode(PREDECODED);
+		current.setNext(next);
+
+		long started = JLPlayer.startedDecoders();
+		current.play();
+		assertTrue(ended.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertEquals(2 * FRAMES, first.frames());
+		assertEquals(0, second.frames());
+		assertEquals(2, JLPlayer.startedDecoders() - started);
+		assertEquals(0, stopped.get());
+	}
+
+	@Test
+	@DisplayName("Test the next song plays on its own device when the formats differ")
+	public void testDifferentFormat() throws Exception {
+		CountingDevice first = new CountingDevice();
+		CountingDevice second = new CountingDevice();
+		JLPlayer current = new JLPlayer(silence(FRAMES, true), first, listener);
+		JLPlayer next = new JLPlayer(silence(FRAMES, false), second, listener);
+		next.predecode(PREDECODED);
+		current.setNext(next);
+
+		current.play();
+		assertTrue(awaitEnded(1));
+		next.play();
+		assertTrue(ended.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertEquals(FRAMES, first.frames());
+		assertEquals(FRAMES, second.frames());
+	}
+
+	@Test
+	@DisplayName("Test a stopped next song does not take over the device")
+	public void testStoppedNext() throws Exception {
+		CountingDevice first = new CountingDevice();
+		CountingDevice second = new CountingDevice();
+		JLPlayer current = new JLPlayer(silence(FRAMES, true), first, listener);
+		JLPlayer next = new JLPlayer(silence(FRAMES, true), second, listener);
+		next.predecode(PREDECODED);
+		current.setNext(next);
+		next.stop();
+
+		current.play();
+		assertTrue(awaitEnded(1));
+
+		assertEquals(FRAMES, first.frames());
+		assertEquals(0, second.frames());
+	}
+
+}
@@ -0,0 +1,103 @@
+package servicos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class MappedFileInputStreamTest {
+
+	private static final int WINDOW = MappedFileInputStream.DEFAULT_WINDOW;
+
+	private Path file;
+	private byte[] contents;
+
+	@BeforeEach
+	public void init() throws IOException {
+		file = Files.createTempFile("mapped", ".mp3");
+		contents = new byte[2 * WINDOW + 1000];
+		new Random(3).nextBytes(contents);
+		Files.write(file, contents);
+	}
+
+	@AfterEach
+	public void cleanUp() throws IOException {
+		Files.delete(file);
+	}
+
+	@Test
+	@DisplayName("Test reading the whole file across several windows")
+	public void testReadAll() throws IOException {
+		try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+			assertEquals(contents.length, in.available());
+			assertArrayEquals(contents, in.readAllBytes());
+			assertEquals(0, in.available());
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	@DisplayName("Test reads that cross the end of a window")
+	public void testReadAcrossWindow() throws IOException {
+		try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+			assertEquals(WINDOW - 10, in.skip(WINDOW - 10));
+			byte[] bytes = in.readNBytes(20);
+			assertArrayEquals(Arrays.copyOfRange(contents, WINDOW - 10, WINDOW + 10), bytes);
+
+			assertEquals(WINDOW - 11, in.skip(WINDOW - 11));
+			assertEquals(contents[2 * WINDOW - 1] & 0xFF, in.read());
+			assertEquals(contents[2 * WINDOW] & 0xFF, in.read());
+			assertEquals(999, in.available());
+		}
+	}
+
+	@Test
+	@DisplayName("Test 'skip' method to the next window and past the end of the file")
+	public void testSkip() throws IOException {
+		try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+			assertEquals(WINDOW + 5, in.skip(WINDOW + 5));
+			assertEquals(contents[WINDOW + 5] & 0xFF, in.read());
+			assertEquals(0, in.skip(0));
+			assertEquals(contents.length - WINDOW - 6, in.skip(3L * WINDOW));
+			assertEquals(0, in.available());
+			assertEquals(-1, in.read(new byte[4], 0, 4));
+		}
+	}
+
+	@Test
+	@DisplayName("Test reading with a small window")
+	public void testSmallWindow() throws IOException {
+		byte[] small = Arrays.copyOf(contents, 100);
+		Files.write(file, small);
+		try (MappedFileInputStream in = new MappedFileInputStream(file, 7)) {
+			byte[] bytes = new byte[100];
+			int read = 0;
+			int n;
+			while ((n = in.read(bytes, read, Math.min(10, bytes.length - read))) > 0)
+				read += n;
+			assertEquals(100, read);
+			assertArrayEquals(small, bytes);
+		}
+	}
+
+	@Test
+	@DisplayName("Test reading an empty file")
+	public void testEmpty() throws IOException {
+		Files.write(file, new byte[0]);
+		try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+			assertEquals(0, in.available());
+			assertEquals(-1, in.read());
+			assertEquals(0, in.skip(10));
+		}
+	}
+
+}
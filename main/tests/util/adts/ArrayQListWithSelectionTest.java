@@ -140,5 +140,46 @@ public class ArrayQListWithSelectionTest {
 		assertFalse(list.someSelected());
 	}
 	
+	@Test
+	@DisplayName("Test 'move' method: moving down")
+	public void testMoveDown() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		list.move(0, 2);
+		assertEquals("b", list.get(0));
+		assertEquals("c", list.get(1));
+		assertEquals("a", list.get(2));
+		assertEquals("d", list.get(3));
+	}
+	
+	@Test
+	@DisplayName("Test 'move' method: moving up")
+	public void testMoveUp() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		list.move(3, 1);
+		assertEquals("a", list.get(0));
+		assertEquals("d", list.get(1));
+		assertEquals("b", list.get(2));
+		assertEquals("c", list.get(3));
+	}
+	
+	@Test
+	@DisplayName("Test 'move' method: the selection follows the selected element")
+	public void testMoveSelection() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.select(1);
+		list.move(0, 2);
+		assertEquals("b", list.getSelected());
+		list.move(0, 1);
+		assertEquals("b", list.getSelected());
+	}
+	
 }
 
@@ -0,0 +1,112 @@
+package util.adts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IndexedMinHeapTest {
+
+	private Map<String, Integer> priorities;
+	private IndexedMinHeap<String> heap;
+
+	@BeforeEach
+	public void init() {
+		priorities = new HashMap<>();
+		heap = new IndexedMinHeap<>(Comparator.comparing((String s) -> priorities.get(s)).thenComparing(s -> s));
+	}
+
+	private void add(String e, int priority) {
+		priorities.put(e, priority);
+		heap.add(e);
+	}
+
+	@Test
+	@DisplayName("Test 'poll' method returns the elements in order")
+	public void testPoll() {
+		add("c", 3);
+		add("a", 1);
+		add("e", 5);
+		add("b", 2);
+		add("d", 4);
+		assertEquals(5, heap.size());
+		assertEquals("a", heap.peek());
+		for (String expected : new String[] {"a", "b", "c", "d", "e"}) {
+			assertEquals(expected, heap.poll());
+			assertFalse(heap.contains(expected));
+		}
+		assertEquals(0, heap.size());
+	}
+
+	@Test
+	@DisplayName("Test 'remove' method")
+	public void testRemove() {
+		add("a", 1);
+		add("b", 2);
+		add("c", 3);
+		assertTrue(heap.remove("a"));
+		assertFalse(heap.remove("a"));
+		assertFalse(heap.contains("a"));
+		assertEquals(2, heap.size());
+		assertEquals("b", heap.peek());
+	}
+
+	@Test
+	@DisplayName("Test 'update' method after the priority of an element changes")
+	public void testUpdate() {
+		add("a", 1);
+		add("b", 2);
+		add("c", 3);
+		priorities.put("a", 4);
+		heap.update("a");
+		assertEquals("b", heap.peek());
+		priorities.put("c", 0);
+		heap.update("c");
+		assertEquals("c", heap.poll());
+		assertEquals("b", heap.poll());
+		assertEquals("a", heap.poll());
+	}
+
+	@Test
+	@DisplayName("Test random adds, removes, updates and polls against a sorted list")
+	public void testRandomOperations() {
+		Random random = new Random(11);
+		List<String> expected = new ArrayList<>();
+		Comparator<String> order = Comparator.comparing((String s) -> priorities.get(s)).thenComparing(s -> s);
+
+		for (int step = 0; step < 5000; step++) {
+			int op = random.nextInt(4);
+			if (op == 0 || expected.isEmpty()) {
+				String e = "e" + step;
+				add(e, random.nextInt(100));
+				expected.add(e);
+			} else if (op == 1) {
+				String e = expected.remove(random.nextInt(expected.size()));
+				assertTrue(heap.remove(e));
+			} else if (op == 2) {
+				String e = expected.get(random.nextInt(expected.size()));
+				priorities.put(e, random.nextInt(100));
+				heap.update(e);
+			} else {
+				expected.sort(order);
+				assertEquals(expected.remove(0), heap.poll());
+			}
+			assertEquals(expected.size(), heap.size());
+		}
+
+		expected.sort(order);
+		for (String e : expected)
+			assertEquals(e, heap.poll());
+	}
+
+}
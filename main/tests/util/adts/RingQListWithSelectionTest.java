@@ -0,0 +1,122 @@
+package util.adts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RingQListWithSelectionTest {
+
+	private RingQListWithSelection<String> list;
+
+	@BeforeEach
+	public void init() {
+		list = new RingQListWithSelection<>(3);
+	}
+
+	@Test
+	@DisplayName("Test 'add' method")
+	public void testAdd() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		assertEquals(3, list.size());
+		assertEquals("a", list.get(0));
+	}
+
+	@Test
+	@DisplayName("Test 'add' method: if size()==capacity()")
+	public void testAddFull() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		assertEquals(3, list.size());
+		assertEquals("b", list.get(0));
+		assertEquals("d", list.get(2));
+	}
+
+	@Test
+	@DisplayName("Test 'add' method: selection follows the element when the oldest is discarded")
+	public void testAddFullSelection() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.select(2);
+		list.add("d");
+		list.add("e");
+		assertEquals(0, list.getIndexSelected());
+		assertEquals("c", list.getSelected());
+	}
+
+	@Test
+	@DisplayName("Test 'add' method: if the discarded element was selected")
+	public void testAddFullSelectedDiscarded() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.select(0);
+		list.add("d");
+		assertFalse(list.someSelected());
+	}
+
+	@Test
+	@DisplayName("Test 'remove' method: first element")
+	public void testRemoveFirst() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		list.select(0);
+		list.remove();
+		assertEquals(2, list.size());
+		assertEquals("c", list.get(0));
+		assertEquals("d", list.get(1));
+	}
+
+	@Test
+	@DisplayName("Test 'remove' method: element in the middle after wrap-around")
+	public void testRemoveMiddle() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		list.add("e");
+		list.select(1);
+		list.remove();
+		assertEquals(2, list.size());
+		assertEquals("c", list.get(0));
+		assertEquals("e", list.get(1));
+		list.add("f");
+		list.add("g");
+		assertEquals("e", list.get(0));
+	}
+
+	@Test
+	@DisplayName("Test 'remove' method: if !someSelected")
+	public void testRemoveNoneSelected() {
+		list.add("a");
+		list.add("b");
+		list.remove();
+		assertEquals(2, list.size());
+	}
+
+	@Test
+	@DisplayName("Test 'iterator' method")
+	public void testIterator() {
+		list.add("a");
+		list.add("b");
+		list.add("c");
+		list.add("d");
+		Iterator<String> it = list.iterator();
+		assertEquals("b", it.next());
+		assertEquals("c", it.next());
+		assertEquals("d", it.next());
+		assertFalse(it.hasNext());
+	}
+
+}
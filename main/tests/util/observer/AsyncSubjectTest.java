@@ -0,0 +1,194 @@
+package util.observer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class AsyncSubjectTest {
+	
+	private static final int CAPACITY = 2;
+	
+	private TestSubject subject;
+	private List<TestEvent> delivered;
+	private List<Thread> threads;
+	private CountDownLatch entered;
+	private CountDownLatch release;
+	
+	private static class TestEvent implements Event {
+		
+		private final String key;
+		
+		private TestEvent(String key) {
+			this.key = key;
+		}
+	}
+	
+	private static class OtherEvent extends TestEvent {
+		
+		private OtherEvent(String key) {
+			super(key);
+		}
+	}
+	
+	private static class TestSubject extends AsyncSubject<TestEvent, String> {
+		
+		private TestSubject() {
+			super(e -> e.key, CAPACITY);
+		}
+	}
+
+	@BeforeEach
+	public void init() {
+		subject = new TestSubject();
+		delivered = Collections.synchronizedList(new ArrayList<>());
+		threads = Collections.synchronizedList(new ArrayList<>());
+		entered = new CountDownLatch(1);
+		release = new CountDownLatch(0);
+		subject.registerListener(e -> {
+			threads.add(Thread.currentThread());
+			entered.countDown();
+			awaitRelease();
+			delivered.add(e);
+		});
+	}
+	
+	@AfterEach
+	public void cleanUp() {
+		while (release.getCount() > 0)
+			release.countDown();
+		subject.setAsync(false);
+	}
+	
+	private void awaitRelease() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Makes the listener wait, after the next event is handed to it, until release
+	 * counts down, and waits until the dispatcher is blocked in the listener
+	 */
+	private void blockDispatcher() throws InterruptedException {
+		release = new CountDownLatch(1);
+		subject.emitEvent(new TestEvent("first"));
+		entered.await();
+	}
+	
+	@Test
+	@DisplayName("Test synchronous delivery while asynchronous delivery is off")
+	public void testSynchronous() {
+		TestEvent e = new TestEvent("a");
+		subject.emitEvent(e);
+		assertFalse(subject.isAsync());
+		assertEquals(1, delivered.size());
+		assertSame(e, delivered.get(0));
+		assertSame(Thread.currentThread(), threads.get(0));
+	}
+	
+	@Test
+	@DisplayName("Test 'flush' method")
+	public void testFlush() {
+		subject.setAsync(true);
+		for (int i = 0; i < 100; i++)
+			subject.emitEvent(new TestEvent("key" + i));
+		subject.flush();
+		assertEquals(100, delivered.size());
+		for (int i = 0; i < 100; i++)
+			assertEquals("key" + i, delivered.get(i).key);
+		assertFalse(threads.contains(Thread.currentThread()));
+	}
+	
+	@Test
+	@DisplayName("Test coalescing of the same change")
+	public void testCoalescing() throws InterruptedException {
+		subject.setAsync(true);
+		blockDispatcher();
+		
+		subject.emitEvent(new TestEvent("a"));
+		subject.emitEvent(new TestEvent("a"));
+		subject.emitEvent(new OtherEvent("a"));
+		assertEquals(1, subject.getCoalescedEvents());
+		
+		release.countDown();
+		subject.flush();
+		assertEquals(3, delivered.size());
+		assertEquals("a", delivered.get(1).key);
+		assertTrue(delivered.get(2) instanceof OtherEvent);
+		
+		subject.emitEvent(new TestEvent("a"));
+		subject.flush();
+		assertEquals(4, delivered.size());
+		assertEquals(1, subject.getCoalescedEvents());
+	}
+	
+	@Test
+	@DisplayName("Test emitting while the queue is full")
+	public void testBoundedQueue() throws InterruptedException {
+		subject.setAsync(true);
+		blockDispatcher();
+		
+		for (int i = 0; i < CAPACITY; i++)
+			subject.emitEvent(new TestEvent("key" + i));
+		Thread emitter = new Thread(() -> subject.emitEvent(new TestEvent("last")));
+		emitter.start();
+		emitter.join(200);
+		assertTrue(emitter.isAlive());
+		
+		release.countDown();
+		emitter.join();
+		subject.flush();
+		assertEquals(CAPACITY + 2, delivered.size());
+		assertEquals("last", delivered.get(CAPACITY + 1).key);
+	}
+	
+	@Test
+	@DisplayName("Test 'setAsync' method turning asynchronous delivery off")
+	public void testSetAsyncOff() throws InterruptedException {
+		subject.setAsync(true);
+		blockDispatcher();
+		subject.emitEvent(new TestEvent("a"));
+		
+		release.countDown();
+		subject.setAsync(false);
+		assertFalse(subject.isAsync());
+		assertEquals(2, delivered.size());
+		
+		subject.emitEvent(new TestEvent("b"));
+		assertEquals(3, delivered.size());
+		assertSame(Thread.currentThread(), threads.get(2));
+	}
+	
+	@Test
+	@DisplayName("Test failures of the listeners during asynchronous delivery")
+	public void testErrorHandler() {
+		List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+		subject.setErrorHandler((thread, ex) -> errors.add(ex));
+		subject.registerListener(e -> {
+			if (e.key.equals("bad"))
+				throw new IllegalStateException(e.key);
+		});
+		subject.setAsync(true);
+		
+		subject.emitEvent(new TestEvent("bad"));
+		subject.emitEvent(new TestEvent("good"));
+		subject.flush();
+		assertEquals(1, errors.size());
+		assertTrue(errors.get(0) instanceof IllegalStateException);
+		assertEquals(2, delivered.size());
+	}
+
+}